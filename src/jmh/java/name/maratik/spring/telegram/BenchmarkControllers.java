@@ -0,0 +1,97 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.annotation.TelegramBot;
+import name.maratik.spring.telegram.annotation.TelegramCallbackQuery;
+import name.maratik.spring.telegram.annotation.TelegramCommand;
+import name.maratik.spring.telegram.annotation.TelegramForward;
+import name.maratik.spring.telegram.annotation.TelegramMessage;
+import name.maratik.spring.telegram.model.TelegramMessageCommand;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+/**
+ * Controllers and service used by dispatch benchmarks.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public final class BenchmarkControllers {
+    /**
+     * User which has own handler set in addition to default one.
+     */
+    public static final long PRIVILEGED_USER = 42;
+
+    private BenchmarkControllers() {
+    }
+
+    /**
+     * Creates service with {@link DefaultController} and {@link PrivilegedController} bound.
+     */
+    public static TelegramBotService newService() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        TelegramBotService service = new TelegramBotService(new TelegramBotsApi(), beanFactory) {
+            @Override
+            public DefaultAbsSender getClient() {
+                return null;
+            }
+
+            @Override
+            public String getBotUsername() {
+                return "BenchmarkBot";
+            }
+        };
+        TelegramBeanPostProcessor postProcessor = new TelegramBeanPostProcessor(service, beanFactory);
+        bind(postProcessor, new DefaultController(), "defaultController");
+        bind(postProcessor, new PrivilegedController(), "privilegedController");
+        service.afterSingletonsInstantiated();
+        return service;
+    }
+
+    private static void bind(TelegramBeanPostProcessor postProcessor, Object bean, String beanName) {
+        postProcessor.postProcessBeforeInitialization(bean, beanName);
+        postProcessor.postProcessAfterInitialization(bean, beanName);
+    }
+
+    @TelegramBot
+    public static class DefaultController {
+        @TelegramCommand(commands = "/start", description = "Start")
+        public SendMessage start(long userId, TelegramMessageCommand command) {
+            return new SendMessage(userId, "start");
+        }
+
+        @TelegramCommand(commands = "/item_*", description = "Item")
+        public SendMessage item(long userId, TelegramMessageCommand command) {
+            return new SendMessage(userId, "item");
+        }
+
+        @TelegramMessage
+        public SendMessage message(long userId, String text) {
+            return new SendMessage(userId, "message");
+        }
+
+        @TelegramForward("7")
+        public SendMessage forward(long userId) {
+            return new SendMessage(userId, "forward");
+        }
+
+        @TelegramCallbackQuery({"cancel", "stop"})
+        public SendMessage cancel(long userId, String data) {
+            return new SendMessage(userId, "cancel");
+        }
+
+        @TelegramCallbackQuery("buy_*")
+        public SendMessage buy(long userId, String data) {
+            return new SendMessage(userId, "buy");
+        }
+    }
+
+    @TelegramBot("42")
+    public static class PrivilegedController {
+        @TelegramCommand(commands = "/admin", description = "Admin")
+        public SendMessage admin(long userId) {
+            return new SendMessage(userId, "admin");
+        }
+    }
+}
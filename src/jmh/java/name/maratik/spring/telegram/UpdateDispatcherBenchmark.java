@@ -0,0 +1,125 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Throughput of long polling hand-off: updates of many chats dispatched to bot executor
+ * through {@link UpdateDispatcher} and processed by {@link TelegramBotService#updateProcess(Update)}.
+ * <p>
+ * With {@link #skew} above zero a few hot chats get most of the updates, which are serialized per chat,
+ * so other chats wait behind them for free threads.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateDispatcherBenchmark {
+    private static final int BATCH = 1024;
+
+    /**
+     * Number of distinct chats updates come from.
+     */
+    @Param({"1", "64", "1024"})
+    public int chats;
+
+    @Param({"4", "16"})
+    public int maxThreads;
+
+    /**
+     * Zipf exponent of chat popularity, {@code 0} spreads updates evenly over chats.
+     */
+    @Param({"0", "1", "2"})
+    public double skew;
+
+    private TelegramBotService service;
+    private UpdateDispatcher dispatcher;
+    private Update[] updates;
+    private final AtomicInteger pending = new AtomicInteger();
+    private Function<Update, Optional<BotApiMethod<?>>> processor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = BenchmarkControllers.newService();
+        // results are dropped, as client is not used without results
+        dispatcher = new UpdateDispatcher(new TelegramBotBuilder().maxThreads(maxThreads), null);
+        updates = new Update[BATCH];
+        double[] popularity = zipfCumulative(chats, skew);
+        Random random = new Random(42);
+        for (int i = 0; i < BATCH; i++) {
+            int chat = skew == 0 ? i % chats : chatOf(popularity, random.nextDouble());
+            updates[i] = Updates.message(i, 1000 + chat, "/start " + i);
+        }
+        processor = update -> {
+            service.updateProcess(update);
+            pending.decrementAndGet();
+            return Optional.empty();
+        };
+    }
+
+    /**
+     * @return cumulative probabilities of chats ordered by rank, chat of rank {@code k} has weight {@code 1 / k^skew}
+     */
+    private static double[] zipfCumulative(int chats, double skew) {
+        double[] cumulative = new double[chats];
+        double sum = 0;
+        for (int rank = 1; rank <= chats; rank++) {
+            sum += 1 / Math.pow(rank, skew);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < chats; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int chatOf(double[] cumulative, double value) {
+        int index = Arrays.binarySearch(cumulative, value);
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.close();
+        service.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dispatch() {
+        pending.addAndGet(BATCH);
+        for (Update update : updates) {
+            dispatcher.dispatch(update, processor);
+        }
+        while (pending.get() > 0) {
+            Thread.yield();
+        }
+    }
+}
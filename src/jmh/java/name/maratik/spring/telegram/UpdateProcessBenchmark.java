@@ -0,0 +1,108 @@
+package name.maratik.spring.telegram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of {@link TelegramBotService#updateProcess(Update)} for each kind of routing.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateProcessBenchmark {
+    private static final long USER = 1000;
+
+    private TelegramBotService service;
+    private Update exactCommand;
+    private Update exactCommandWithBotName;
+    private Update patternCommand;
+    private Update defaultMessage;
+    private Update forward;
+    private Update privilegedCommand;
+    private Update defaultCommandOfPrivilegedUser;
+    private Update exactCallbackQuery;
+    private Update patternCallbackQuery;
+
+    @Setup
+    public void setUp() {
+        service = BenchmarkControllers.newService();
+        exactCommand = Updates.message(1, USER, "/start argument");
+        exactCommandWithBotName = Updates.message(2, USER, "/start@BenchmarkBot argument");
+        patternCommand = Updates.message(3, USER, "/item_12345");
+        defaultMessage = Updates.message(4, USER, "hello");
+        forward = Updates.forward(5, USER, 7, "forwarded");
+        privilegedCommand = Updates.message(6, BenchmarkControllers.PRIVILEGED_USER, "/admin");
+        defaultCommandOfPrivilegedUser = Updates.message(7, BenchmarkControllers.PRIVILEGED_USER, "/start");
+        exactCallbackQuery = Updates.callbackQuery(8, USER, "cancel");
+        patternCallbackQuery = Updates.callbackQuery(9, USER, "buy_12345");
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> exactCommand() {
+        return service.updateProcess(exactCommand);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> exactCommandWithBotName() {
+        return service.updateProcess(exactCommandWithBotName);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> patternCommand() {
+        return service.updateProcess(patternCommand);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> defaultMessage() {
+        return service.updateProcess(defaultMessage);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> forward() {
+        return service.updateProcess(forward);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> privilegedCommand() {
+        return service.updateProcess(privilegedCommand);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> defaultCommandOfPrivilegedUser() {
+        return service.updateProcess(defaultCommandOfPrivilegedUser);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> exactCallbackQuery() {
+        return service.updateProcess(exactCallbackQuery);
+    }
+
+    @Benchmark
+    public Optional<BotApiMethod<?>> patternCallbackQuery() {
+        return service.updateProcess(patternCallbackQuery);
+    }
+}
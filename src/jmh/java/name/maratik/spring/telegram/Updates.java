@@ -0,0 +1,82 @@
+package name.maratik.spring.telegram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Synthetic updates for benchmarks.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public final class Updates {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private Updates() {
+    }
+
+    /**
+     * Text message from user {@code userId} in private chat.
+     */
+    public static Update message(int updateId, long userId, String text) {
+        ObjectNode message = newMessage(userId);
+        message.put("text", text);
+        return toUpdate(updateId, "message", message);
+    }
+
+    /**
+     * Message from user {@code userId} forwarded from user {@code forwardedFrom}.
+     */
+    public static Update forward(int updateId, long userId, long forwardedFrom, String text) {
+        ObjectNode message = newMessage(userId);
+        message.put("text", text);
+        message.set("forward_from", newUser(forwardedFrom));
+        message.put("forward_date", 1);
+        return toUpdate(updateId, "message", message);
+    }
+
+    /**
+     * Callback query of user {@code userId} with {@code data}.
+     */
+    public static Update callbackQuery(int updateId, long userId, String data) {
+        ObjectNode callbackQuery = OBJECT_MAPPER.createObjectNode();
+        callbackQuery.put("id", Integer.toString(updateId));
+        callbackQuery.set("from", newUser(userId));
+        callbackQuery.put("chat_instance", "1");
+        callbackQuery.put("data", data);
+        return toUpdate(updateId, "callback_query", callbackQuery);
+    }
+
+    private static ObjectNode newMessage(long userId) {
+        ObjectNode message = OBJECT_MAPPER.createObjectNode();
+        message.put("message_id", 1);
+        message.put("date", 1);
+        message.set("from", newUser(userId));
+        ObjectNode chat = message.putObject("chat");
+        chat.put("id", userId);
+        chat.put("type", "private");
+        return message;
+    }
+
+    private static ObjectNode newUser(long userId) {
+        ObjectNode user = OBJECT_MAPPER.createObjectNode();
+        user.put("id", userId);
+        user.put("first_name", "User" + userId);
+        user.put("is_bot", false);
+        return user;
+    }
+
+    private static Update toUpdate(int updateId, String field, ObjectNode payload) {
+        ObjectNode update = OBJECT_MAPPER.createObjectNode();
+        update.put("update_id", updateId);
+        update.set(field, payload);
+        try {
+            return OBJECT_MAPPER.treeToValue(update, Update.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
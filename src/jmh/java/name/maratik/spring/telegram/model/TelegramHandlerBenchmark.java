@@ -0,0 +1,61 @@
+package name.maratik.spring.telegram.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler invocation through precompiled method handle of {@link TelegramHandler} versus reflective call.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TelegramHandlerBenchmark {
+    private Controller bean;
+    private Method method;
+    private TelegramHandler handler;
+    private Object[] arguments;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        bean = new Controller();
+        method = Controller.class.getMethod("handle", long.class, String.class);
+        handler = new TelegramHandler(bean, method, null, Arrays.asList(
+            (command, update) -> 42L,
+            (command, update) -> "argument"
+        ));
+        arguments = new Object[] {42L, "argument"};
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Exception {
+        return handler.invoke(arguments);
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return method.invoke(bean, arguments);
+    }
+
+    public static class Controller {
+        public String handle(long userId, String argument) {
+            return argument;
+        }
+    }
+}
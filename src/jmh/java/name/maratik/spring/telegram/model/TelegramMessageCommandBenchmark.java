@@ -0,0 +1,61 @@
+package name.maratik.spring.telegram.model;
+
+import name.maratik.spring.telegram.Updates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of message text into {@link TelegramMessageCommand}.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TelegramMessageCommandBenchmark {
+    private Update command;
+    private Update commandWithBotName;
+    private Update text;
+
+    @Setup
+    public void setUp() {
+        command = Updates.message(1, 1000, "/start some argument");
+        commandWithBotName = Updates.message(2, 1000, "/start@BenchmarkBot some argument");
+        text = Updates.message(3, 1000, "just a message without command");
+    }
+
+    @Benchmark
+    public TelegramMessageCommand parseCommand() {
+        return new TelegramMessageCommand(command, "BenchmarkBot");
+    }
+
+    @Benchmark
+    public TelegramMessageCommand parseCommandWithBotName() {
+        return new TelegramMessageCommand(commandWithBotName, "BenchmarkBot");
+    }
+
+    @Benchmark
+    public TelegramMessageCommand parseText() {
+        return new TelegramMessageCommand(text, "BenchmarkBot");
+    }
+
+    @Benchmark
+    public String parseCommandAndGetArgument() {
+        return new TelegramMessageCommand(command, "BenchmarkBot").getArgumentOrNull();
+    }
+}
@@ -0,0 +1,66 @@
+package name.maratik.spring.telegram.util;
+
+import name.maratik.spring.telegram.annotation.TelegramCallbackData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing and unpacking of typed callback data.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallbackDataCodecBenchmark {
+    private CallbackDataCodec<BuyData> codec;
+    private BuyData buyData;
+    private String data;
+
+    @Setup
+    public void setUp() {
+        codec = CallbackDataCodec.of(BuyData.class);
+        buyData = new BuyData();
+        buyData.itemId = 1234567890123L;
+        buyData.quantity = 3;
+        buyData.color = Color.GREEN;
+        buyData.note = "gift";
+        data = codec.encode(buyData);
+    }
+
+    @Benchmark
+    public String encode() {
+        return codec.encode(buyData);
+    }
+
+    @Benchmark
+    public BuyData decode() {
+        return codec.decode(data);
+    }
+
+    public enum Color {
+        RED, GREEN
+    }
+
+    @TelegramCallbackData("buy")
+    public static class BuyData {
+        public long itemId;
+        public int quantity;
+        public Color color;
+        public String note;
+    }
+}
@@ -0,0 +1,89 @@
+package name.maratik.spring.telegram.util;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler set lookup by user id in {@link ImmutableLongMap} versus boxed key maps.
+ * Half of looked up ids are absent, as most users have only default handler set.
+ * Memory footprint of the same maps is measured by {@link ImmutableLongMapFootprint}.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImmutableLongMapBenchmark {
+    private static final int LOOKUPS = 1024;
+    private static final Object DEFAULT_VALUE = new Object();
+
+    @Param({"16", "1024", "65536", "100000"})
+    public int size;
+
+    private ImmutableLongMap<Object> longMap;
+    private Map<Long, Object> hashMap;
+    private Map<OptionalLong, Object> optionalKeyMap;
+    private long[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        Map<Long, Object> source = new HashMap<>();
+        ImmutableMap.Builder<OptionalLong, Object> optionalKeyBuilder = ImmutableMap.builder();
+        keys = new long[LOOKUPS];
+        while (source.size() < size) {
+            long key = random.nextInt(Integer.MAX_VALUE);
+            if (source.putIfAbsent(key, key) == null) {
+                optionalKeyBuilder.put(OptionalLong.of(key), key);
+            }
+        }
+        Long[] present = source.keySet().toArray(new Long[0]);
+        for (int i = 0; i < LOOKUPS; i++) {
+            keys[i] = i % 2 == 0 ? present[random.nextInt(present.length)] : -1 - random.nextInt(Integer.MAX_VALUE);
+        }
+        longMap = ImmutableLongMap.copyOf(source, DEFAULT_VALUE);
+        hashMap = new HashMap<>(source);
+        optionalKeyMap = optionalKeyBuilder.build();
+    }
+
+    @Benchmark
+    public Object immutableLongMap() {
+        return longMap.get(nextKey());
+    }
+
+    @Benchmark
+    public Object hashMap() {
+        return hashMap.getOrDefault(nextKey(), DEFAULT_VALUE);
+    }
+
+    @Benchmark
+    public Object optionalKeyMap() {
+        return optionalKeyMap.getOrDefault(OptionalLong.of(nextKey()), DEFAULT_VALUE);
+    }
+
+    private long nextKey() {
+        long key = keys[next];
+        next = (next + 1) & (LOOKUPS - 1);
+        return key;
+    }
+}
@@ -0,0 +1,52 @@
+package name.maratik.spring.telegram.util;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Random;
+
+/**
+ * Retained size of {@link ImmutableLongMap} versus boxed key maps with the same random keys,
+ * measured by walking object graphs with JOL. All keys map to one shared value, so only the map structure is counted.
+ * <p>
+ * Not a JMH benchmark, run with {@code ./gradlew jmhFootprint}.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public final class ImmutableLongMapFootprint {
+    private static final int[] SIZES = {16, 1024, 65536, 100_000};
+    private static final Object VALUE = new Object();
+
+    private ImmutableLongMapFootprint() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%8s %18s %18s %18s%n", "size", "ImmutableLongMap", "HashMap<Long>", "ImmutableMap<OL>");
+        for (int size : SIZES) {
+            Random random = new Random(1);
+            Map<Long, Object> hashMap = new HashMap<>();
+            ImmutableMap.Builder<OptionalLong, Object> optionalKeyBuilder = ImmutableMap.builder();
+            while (hashMap.size() < size) {
+                long key = random.nextInt(Integer.MAX_VALUE);
+                if (hashMap.putIfAbsent(key, VALUE) == null) {
+                    optionalKeyBuilder.put(OptionalLong.of(key), VALUE);
+                }
+            }
+            ImmutableLongMap<Object> longMap = ImmutableLongMap.copyOf(hashMap, VALUE);
+            Map<OptionalLong, Object> optionalKeyMap = optionalKeyBuilder.build();
+            System.out.printf("%8d %18d %18d %18d%n", size,
+                footprint(longMap), footprint(hashMap), footprint(optionalKeyMap)
+            );
+        }
+    }
+
+    /**
+     * @return retained size in bytes, excluding the shared value
+     */
+    private static long footprint(Object map) {
+        return GraphLayout.parseInstance(map).totalSize() - GraphLayout.parseInstance(VALUE).totalSize();
+    }
+}
@@ -0,0 +1,83 @@
+package name.maratik.spring.telegram.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pattern command lookup by {@link PrefixMatcher} versus linear scan of registered prefixes,
+ * depending on number of pattern commands.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefixMatcherBenchmark {
+    @Param({"10", "100", "1000"})
+    public int patterns;
+
+    private final PrefixMatcher<String> matcher = new PrefixMatcher<>();
+    private final Map<String, String> prefixes = new LinkedHashMap<>();
+    private String command;
+    private String unknownCommand;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < patterns; i++) {
+            String prefix = "/pattern" + i + "_";
+            matcher.put(prefix, prefix);
+            prefixes.put(prefix, prefix);
+        }
+        command = "/pattern" + (patterns / 2) + "_12345";
+        unknownCommand = "/unknown_12345";
+    }
+
+    @Benchmark
+    public String trie() {
+        return matcher.findLongestPrefix(command);
+    }
+
+    @Benchmark
+    public String trieMiss() {
+        return matcher.findLongestPrefix(unknownCommand);
+    }
+
+    @Benchmark
+    public String linearScan() {
+        return scan(command);
+    }
+
+    @Benchmark
+    public String linearScanMiss() {
+        return scan(unknownCommand);
+    }
+
+    private String scan(String s) {
+        String result = null;
+        int resultLength = -1;
+        for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+            String prefix = entry.getKey();
+            if (prefix.length() > resultLength && s.startsWith(prefix)) {
+                result = entry.getValue();
+                resultLength = prefix.length();
+            }
+        }
+        return result;
+    }
+}
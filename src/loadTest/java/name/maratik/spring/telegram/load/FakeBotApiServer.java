@@ -0,0 +1,178 @@
+package name.maratik.spring.telegram.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal local Telegram Bot API: serves queued updates via {@code getUpdates} long polling
+ * and records replies sent by the bot into {@link LoadStats}. Any other method succeeds with {@code true}.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class FakeBotApiServer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(FakeBotApiServer.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long MAX_POLL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final byte[] OK_TRUE = "{\"ok\":true,\"result\":true}".getBytes(StandardCharsets.UTF_8);
+
+    private final LoadStats stats;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ConcurrentNavigableMap<Integer, String> pending = new ConcurrentSkipListMap<>();
+    private final Object updatesLock = new Object();
+    private volatile int lastDelivered = Integer.MIN_VALUE;
+
+    /**
+     * @param threads number of threads serving requests
+     */
+    public FakeBotApiServer(LoadStats stats, int threads) throws IOException {
+        this.stats = stats;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-bot-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return value for {@link org.telegram.telegrambots.bots.DefaultBotOptions#setBaseUrl(String)}
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    /**
+     * Queues update to be returned by {@code getUpdates}.
+     */
+    public void offer(int updateId, String json) {
+        pending.put(updateId, json);
+        synchronized (updatesLock) {
+            updatesLock.notifyAll();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase();
+            byte[] request = readAll(exchange.getRequestBody());
+            JsonNode body = request.length == 0 || !isJson(exchange)
+                ? OBJECT_MAPPER.createObjectNode()
+                : OBJECT_MAPPER.readTree(request);
+            switch (method) {
+                case "getupdates":
+                    respond(exchange, getUpdates(body));
+                    break;
+                case "sendmessage":
+                    stats.replied(method, body);
+                    respond(exchange, ("{\"ok\":true,\"result\":{\"message_id\":1,\"date\":0,\"chat\":{\"id\":" +
+                        body.path("chat_id").asText("0") + ",\"type\":\"private\"}}}").getBytes(StandardCharsets.UTF_8)
+                    );
+                    break;
+                case "answercallbackquery":
+                    stats.replied(method, body);
+                    respond(exchange, OK_TRUE);
+                    break;
+                default:
+                    respond(exchange, OK_TRUE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Can not handle {}", exchange.getRequestURI(), e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] getUpdates(JsonNode body) throws InterruptedException {
+        int offset = body.path("offset").asInt(0);
+        int limit = body.path("limit").asInt(100);
+        long timeoutNanos = Math.min(TimeUnit.SECONDS.toNanos(body.path("timeout").asInt(0)), MAX_POLL_NANOS);
+        pending.headMap(offset).clear();
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (updatesLock) {
+            long left;
+            while (pending.isEmpty() && (left = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(updatesLock, left);
+            }
+        }
+        StringBuilder result = new StringBuilder("{\"ok\":true,\"result\":[");
+        Iterator<Map.Entry<Integer, String>> it = pending.tailMap(offset).entrySet().iterator();
+        for (int i = 0; i < limit && it.hasNext(); i++) {
+            Map.Entry<Integer, String> entry = it.next();
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(entry.getValue());
+            if (entry.getKey() > lastDelivered) {
+                lastDelivered = entry.getKey();
+                stats.delivered();
+            }
+        }
+        return result.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isJson(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null && contentType.startsWith("application/json");
+    }
+
+    private static void respond(HttpExchange exchange, byte[] response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+package name.maratik.spring.telegram.load;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects latency samples up to fixed capacity and computes percentiles at the end of the run.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class LatencyRecorder {
+    private final AtomicLongArray samples;
+    private final AtomicInteger count = new AtomicInteger();
+
+    public LatencyRecorder(int capacity) {
+        samples = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Records sample, samples above capacity are ignored.
+     */
+    public void record(long nanos) {
+        int index = count.getAndIncrement();
+        if (index < samples.length()) {
+            samples.set(index, nanos);
+        }
+    }
+
+    /**
+     * @return number of recorded samples
+     */
+    public int getCount() {
+        return Math.min(count.get(), samples.length());
+    }
+
+    /**
+     * @return samples sorted in ascending order
+     */
+    public long[] sorted() {
+        long[] result = new long[getCount()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = samples.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return summary of percentiles in milliseconds
+     */
+    public String summary() {
+        long[] sorted = sorted();
+        if (sorted.length == 0) {
+            return "count=0";
+        }
+        return String.format("count=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+            sorted.length, millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.9)),
+            millis(percentile(sorted, 0.99)), millis(sorted[sorted.length - 1])
+        );
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,114 @@
+package name.maratik.spring.telegram.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latencies of a load test run, shared by fake server, webhook pusher and driver.
+ * <p>
+ * Bot replies carry update id and time when handler produced them in their text,
+ * see {@link LoadTestController#stamp(org.telegram.telegrambots.meta.api.objects.Update)}.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class LoadStats {
+    private final Map<Integer, Long> createdAt = new ConcurrentHashMap<>();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder unknownReplies = new LongAdder();
+    private final LatencyRecorder endToEnd;
+    private final LatencyRecorder handlerToSend;
+    private volatile long firstCreated;
+    private volatile long lastCompleted;
+
+    /**
+     * @param capacity maximum number of latency samples
+     */
+    public LoadStats(int capacity) {
+        endToEnd = new LatencyRecorder(capacity);
+        handlerToSend = new LatencyRecorder(capacity);
+    }
+
+    /**
+     * Update was generated.
+     */
+    public void created(int updateId) {
+        long now = System.nanoTime();
+        if (generated.sum() == 0) {
+            firstCreated = now;
+        }
+        createdAt.put(updateId, now);
+        generated.increment();
+    }
+
+    /**
+     * Update was handed to the bot for the first time.
+     */
+    public void delivered() {
+        delivered.increment();
+    }
+
+    /**
+     * Bot sent {@code method} with {@code body}, either by request or in webhook response.
+     */
+    public void replied(String method, JsonNode body) {
+        long now = System.nanoTime();
+        String text = body.path("text").asText(null);
+        if (text == null || !text.startsWith(LoadTestController.STAMP_PREFIX)) {
+            unknownReplies.increment();
+            return;
+        }
+        String[] parts = text.substring(LoadTestController.STAMP_PREFIX.length()).split(" ");
+        Long created = createdAt.remove(Integer.parseInt(parts[0]));
+        if (created == null) {
+            unknownReplies.increment();
+            return;
+        }
+        endToEnd.record(now - created);
+        handlerToSend.record(now - Long.parseLong(parts[1]));
+        completed.increment();
+        lastCompleted = now;
+    }
+
+    public long getGenerated() {
+        return generated.sum();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getUnknownReplies() {
+        return unknownReplies.sum();
+    }
+
+    /**
+     * @return latency from update generation to reply receipt
+     */
+    public LatencyRecorder getEndToEnd() {
+        return endToEnd;
+    }
+
+    /**
+     * @return latency from handler return to reply receipt
+     */
+    public LatencyRecorder getHandlerToSend() {
+        return handlerToSend;
+    }
+
+    /**
+     * @return completed updates per second from the first generated update to the last completed one
+     */
+    public double getThroughput() {
+        long elapsed = lastCompleted - firstCreated;
+        return elapsed <= 0 ? 0 : completed.sum() * 1e9 / elapsed;
+    }
+}
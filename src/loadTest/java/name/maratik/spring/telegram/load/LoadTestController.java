@@ -0,0 +1,73 @@
+package name.maratik.spring.telegram.load;
+
+import name.maratik.spring.telegram.annotation.TelegramBot;
+import name.maratik.spring.telegram.annotation.TelegramCallbackQuery;
+import name.maratik.spring.telegram.annotation.TelegramCommand;
+import name.maratik.spring.telegram.annotation.TelegramMessage;
+
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replies to every update with its id and the time handler completed, so the fake server can measure latencies.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@TelegramBot
+public class LoadTestController {
+    static final String STAMP_PREFIX = "update=";
+
+    private final long handlerNanos;
+
+    /**
+     * @param handlerNanos time each handler waits, simulating blocking calls
+     */
+    public LoadTestController(long handlerNanos) {
+        this.handlerNanos = handlerNanos;
+    }
+
+    @TelegramCommand(commands = "/start", description = "Start")
+    public SendMessage start(Update update, long userId) {
+        return reply(update, userId);
+    }
+
+    @TelegramCommand(commands = "/item_*", description = "Item")
+    public SendMessage item(Update update, long userId) {
+        return reply(update, userId);
+    }
+
+    @TelegramMessage
+    public SendMessage text(Update update, long userId) {
+        return reply(update, userId);
+    }
+
+    @TelegramCallbackQuery
+    public AnswerCallbackQuery callback(Update update, CallbackQuery callbackQuery) {
+        work();
+        return new AnswerCallbackQuery()
+            .setCallbackQueryId(callbackQuery.getId())
+            .setText(stamp(update));
+    }
+
+    private SendMessage reply(Update update, long userId) {
+        work();
+        return new SendMessage(userId, stamp(update));
+    }
+
+    private void work() {
+        if (handlerNanos > 0) {
+            LockSupport.parkNanos(handlerNanos);
+        }
+    }
+
+    /**
+     * @return reply text with update id and current time
+     */
+    static String stamp(Update update) {
+        return STAMP_PREFIX + update.getUpdateId() + ' ' + System.nanoTime();
+    }
+}
@@ -0,0 +1,210 @@
+package name.maratik.spring.telegram.load;
+
+import name.maratik.spring.telegram.TelegramBeanPostProcessor;
+import name.maratik.spring.telegram.TelegramBotService;
+import name.maratik.spring.telegram.config.OverflowPolicy;
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+import name.maratik.spring.telegram.config.TelegramBotType;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.telegram.telegrambots.ApiContextInitializer;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a bot against {@link FakeBotApiServer} under generated load and prints throughput, latencies and drops.
+ * <p>
+ * Options are passed as {@code key=value} arguments:
+ * <ul>
+ * <li>{@code mode} - {@code LONG_POLLING} (default) or {@code WEBHOOK}</li>
+ * <li>{@code rate} - updates per second, default 1000</li>
+ * <li>{@code seconds} - load duration, default 10</li>
+ * <li>{@code chats} - number of distinct chats, default 100</li>
+ * <li>{@code mix} - weights of command, pattern command, text and callback updates, default {@code 4,2,2,2}</li>
+ * <li>{@code handlerMicros} - simulated blocking work in handler, default 0</li>
+ * <li>{@code maxThreads}, {@code queueCapacity}, {@code overflowPolicy}, {@code virtualThreads},
+ * {@code rateLimitedSend}, {@code globalSendRate}, {@code chatSendRate}, {@code sendThreads},
+ * {@code asyncWebhook} - bot options, see {@link TelegramBotBuilder}</li>
+ * <li>{@code webhookConnections} - simultaneous webhook deliveries, default 40 as in telegram</li>
+ * </ul>
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public final class LoadTestDriver {
+    private static final int SAMPLES = 10_000_000;
+    private static final long DRAIN_IDLE_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    private LoadTestDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // otherwise small responses of the fake server wait for delayed ack
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        Map<String, String> options = parseOptions(args);
+        TelegramBotType mode = TelegramBotType.valueOf(options.getOrDefault("mode", "LONG_POLLING"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "1000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        int chats = Integer.parseInt(options.getOrDefault("chats", "100"));
+        int[] mix = parseMix(options.getOrDefault("mix", "4,2,2,2"));
+        long handlerNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(options.getOrDefault("handlerMicros", "0")));
+
+        ApiContextInitializer.init();
+        LoadStats stats = new LoadStats(SAMPLES);
+        LoadTestMetrics metrics = new LoadTestMetrics(SAMPLES);
+        try (FakeBotApiServer server = new FakeBotApiServer(stats, 64)) {
+            server.start();
+            DefaultBotOptions botOptions = new DefaultBotOptions();
+            botOptions.setBaseUrl(server.getBaseUrl());
+            TelegramBotBuilder botBuilder = configure(new TelegramBotBuilder(), options)
+                .username("LoadTestBot")
+                .token("42:load")
+                .path("load")
+                .metrics(metrics)
+                .botOptions(botOptions);
+            TelegramBotsApi api;
+            String internalUrl = null;
+            if (mode == TelegramBotType.WEBHOOK) {
+                internalUrl = "http://127.0.0.1:" + freePort();
+                api = new TelegramBotsApi(internalUrl, internalUrl);
+            } else {
+                api = new TelegramBotsApi();
+            }
+
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            TelegramBotService service = mode.createService(botBuilder, api, beanFactory);
+            TelegramBeanPostProcessor postProcessor = new TelegramBeanPostProcessor(service, beanFactory);
+            LoadTestController controller = new LoadTestController(handlerNanos);
+            postProcessor.postProcessBeforeInitialization(controller, "loadTestController");
+            postProcessor.postProcessAfterInitialization(controller, "loadTestController");
+            service.afterSingletonsInstantiated();
+
+            WebhookPusher pusher = null;
+            UpdateGenerator.Sink sink = server::offer;
+            if (mode == TelegramBotType.WEBHOOK) {
+                pusher = new WebhookPusher(new URL(internalUrl + "/callback/load"), stats,
+                    Integer.parseInt(options.getOrDefault("webhookConnections", "40"))
+                );
+                sink = pusher;
+            }
+
+            System.out.println("Load: " + options);
+            System.out.println("Bot: " + botBuilder);
+            int generated = new UpdateGenerator(stats, sink, rate, chats, mix).run(TimeUnit.SECONDS.toNanos(seconds));
+            long webhookFailures = drain(stats, metrics, pusher, generated);
+            if (pusher != null) {
+                pusher.close();
+            }
+            service.close();
+            report(stats, metrics, webhookFailures, rate * (long) seconds);
+        }
+        // long polling session of telegrambots can not be stopped from service
+        System.exit(0);
+    }
+
+    private static TelegramBotBuilder configure(TelegramBotBuilder botBuilder, Map<String, String> options) {
+        if (options.containsKey("maxThreads")) {
+            botBuilder.maxThreads(Integer.parseInt(options.get("maxThreads")));
+        }
+        if (options.containsKey("queueCapacity")) {
+            botBuilder.queueCapacity(Integer.parseInt(options.get("queueCapacity")));
+        }
+        if (options.containsKey("overflowPolicy")) {
+            botBuilder.overflowPolicy(OverflowPolicy.valueOf(options.get("overflowPolicy")));
+        }
+        if (options.containsKey("virtualThreads")) {
+            botBuilder.virtualThreads(Boolean.parseBoolean(options.get("virtualThreads")));
+        }
+        if (options.containsKey("rateLimitedSend")) {
+            botBuilder.rateLimitedSend(Boolean.parseBoolean(options.get("rateLimitedSend")));
+        }
+        if (options.containsKey("globalSendRate")) {
+            botBuilder.globalSendRate(Double.parseDouble(options.get("globalSendRate")));
+        }
+        if (options.containsKey("chatSendRate")) {
+            botBuilder.chatSendRate(Double.parseDouble(options.get("chatSendRate")));
+        }
+        if (options.containsKey("sendThreads")) {
+            botBuilder.sendThreads(Integer.parseInt(options.get("sendThreads")));
+        }
+        if (options.containsKey("asyncWebhook")) {
+            botBuilder.asyncWebhook(Boolean.parseBoolean(options.get("asyncWebhook")));
+        }
+        return botBuilder;
+    }
+
+    /**
+     * Waits until every generated update is either answered or lost, or nothing changes for a while.
+     *
+     * @return number of failed webhook deliveries
+     */
+    private static long drain(
+        LoadStats stats, LoadTestMetrics metrics, WebhookPusher pusher, int generated
+    ) throws InterruptedException {
+        long lastProgress = System.nanoTime();
+        long last = -1;
+        while (true) {
+            long failures = pusher == null ? 0 : pusher.getFailures();
+            long done = stats.getCompleted() + metrics.getRejected() + metrics.getHandlerFailures() + failures;
+            if (done >= generated) {
+                return failures;
+            }
+            long now = System.nanoTime();
+            if (done != last) {
+                last = done;
+                lastProgress = now;
+            } else if (now - lastProgress > DRAIN_IDLE_NANOS) {
+                return failures;
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private static void report(LoadStats stats, LoadTestMetrics metrics, long webhookFailures, long target) {
+        System.out.printf("Updates: target=%d generated=%d delivered=%d completed=%d%n",
+            target, stats.getGenerated(), stats.getDelivered(), stats.getCompleted()
+        );
+        System.out.printf("Lost: dropped=%d handlerFailures=%d sendFailures=%d webhookFailures=%d unknownReplies=%d%n",
+            metrics.getRejected(), metrics.getHandlerFailures(), metrics.getSendFailures(), webhookFailures,
+            stats.getUnknownReplies()
+        );
+        System.out.printf("Throughput: %.1f updates/s%n", stats.getThroughput());
+        System.out.println("End to end: " + stats.getEndToEnd().summary());
+        System.out.println("Handler to send: " + stats.getHandlerToSend().summary());
+        System.out.println("Queue wait: " + metrics.getQueueWait().summary());
+        System.out.println("Handler: " + metrics.getHandler().summary());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Option should be key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static int[] parseMix(String mix) {
+        String[] parts = mix.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package name.maratik.spring.telegram.load;
+
+import name.maratik.spring.telegram.config.TelegramBotMetrics;
+import name.maratik.spring.telegram.model.TelegramHandler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bot side measurements of a load test run.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class LoadTestMetrics implements TelegramBotMetrics {
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder handlerFailures = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LatencyRecorder queueWait;
+    private final LatencyRecorder handler;
+
+    /**
+     * @param capacity maximum number of latency samples
+     */
+    public LoadTestMetrics(int capacity) {
+        queueWait = new LatencyRecorder(capacity);
+        handler = new LatencyRecorder(capacity);
+    }
+
+    @Override
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    @Override
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    @Override
+    public void recordHandler(TelegramHandler handler, long nanos, boolean failed) {
+        this.handler.record(nanos);
+        if (failed) {
+            handlerFailures.increment();
+        }
+    }
+
+    @Override
+    public void recordSend(long nanos, boolean failed) {
+        if (failed) {
+            sendFailures.increment();
+        }
+    }
+
+    /**
+     * @return number of updates dropped because of executor queue overflow
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getHandlerFailures() {
+        return handlerFailures.sum();
+    }
+
+    public long getSendFailures() {
+        return sendFailures.sum();
+    }
+
+    /**
+     * @return time updates waited in executor queue
+     */
+    public LatencyRecorder getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * @return handler invocation time
+     */
+    public LatencyRecorder getHandler() {
+        return handler;
+    }
+}
@@ -0,0 +1,167 @@
+package name.maratik.spring.telegram.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates updates at fixed rate, spread over chats and mixed by kind, and hands them to a sink.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class UpdateGenerator {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LoadStats stats;
+    private final Sink sink;
+    private final int rate;
+    private final int chats;
+    private final int[] mix;
+    private final int mixTotal;
+    private final Random random = new Random(42);
+    private int nextUpdateId = 1;
+
+    /**
+     * @param rate  updates per second
+     * @param chats number of distinct chats, chat id is also user id
+     * @param mix   weights of {@link Kind kinds} in their declaration order
+     */
+    public UpdateGenerator(LoadStats stats, Sink sink, int rate, int chats, int[] mix) {
+        if (mix.length != Kind.values().length) {
+            throw new IllegalArgumentException("Mix should have " + Kind.values().length + " weights");
+        }
+        this.stats = stats;
+        this.sink = sink;
+        this.rate = rate;
+        this.chats = chats;
+        this.mix = mix.clone();
+        int total = 0;
+        for (int weight : mix) {
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Mix should have positive weight");
+        }
+        mixTotal = total;
+    }
+
+    /**
+     * Generates updates for {@code durationNanos} on calling thread.
+     *
+     * @return number of generated updates
+     */
+    public int run(long durationNanos) {
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        long generated = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            long due = (now - start) * rate / TimeUnit.SECONDS.toNanos(1);
+            for (; generated < due; generated++) {
+                int updateId = nextUpdateId++;
+                String json = makeUpdate(updateId);
+                stats.created(updateId);
+                sink.accept(updateId, json);
+            }
+            LockSupport.parkNanos(TICK_NANOS);
+        }
+        return (int) generated;
+    }
+
+    private String makeUpdate(int updateId) {
+        long chatId = 1 + random.nextInt(chats);
+        ObjectNode update = OBJECT_MAPPER.createObjectNode().put("update_id", updateId);
+        ObjectNode from = OBJECT_MAPPER.createObjectNode()
+            .put("id", chatId)
+            .put("is_bot", false)
+            .put("first_name", "User" + chatId);
+        nextKind().fill(update, updateId, chatId, from);
+        return update.toString();
+    }
+
+    private Kind nextKind() {
+        int value = random.nextInt(mixTotal);
+        Kind[] kinds = Kind.values();
+        for (int i = 0; i < kinds.length; i++) {
+            value -= mix[i];
+            if (value < 0) {
+                return kinds[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Kinds of generated updates.
+     */
+    public enum Kind {
+        /**
+         * Exact command {@code /start}.
+         */
+        COMMAND {
+            @Override
+            void fill(ObjectNode update, int updateId, long chatId, ObjectNode from) {
+                fillMessage(update, updateId, chatId, from, "/start");
+            }
+        },
+        /**
+         * Command matched by pattern {@code /item_*}.
+         */
+        PATTERN_COMMAND {
+            @Override
+            void fill(ObjectNode update, int updateId, long chatId, ObjectNode from) {
+                fillMessage(update, updateId, chatId, from, "/item_" + updateId);
+            }
+        },
+        /**
+         * Plain text message.
+         */
+        TEXT {
+            @Override
+            void fill(ObjectNode update, int updateId, long chatId, ObjectNode from) {
+                fillMessage(update, updateId, chatId, from, "text " + updateId);
+            }
+        },
+        /**
+         * Callback query.
+         */
+        CALLBACK {
+            @Override
+            void fill(ObjectNode update, int updateId, long chatId, ObjectNode from) {
+                update.putObject("callback_query")
+                    .put("id", Integer.toString(updateId))
+                    .put("chat_instance", Long.toString(chatId))
+                    .put("data", "data" + updateId)
+                    .set("from", from);
+            }
+        };
+
+        /**
+         * Adds payload of this kind sent by {@code from} in chat {@code chatId} to {@code update}.
+         */
+        abstract void fill(ObjectNode update, int updateId, long chatId, ObjectNode from);
+
+        private static void fillMessage(ObjectNode update, int updateId, long chatId, ObjectNode from, String text) {
+            ObjectNode message = update.putObject("message")
+                .put("message_id", updateId)
+                .put("date", 0)
+                .put("text", text);
+            message.set("from", from);
+            message.putObject("chat")
+                .put("id", chatId)
+                .put("type", "private");
+        }
+    }
+
+    /**
+     * Receives generated updates.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(int updateId, String json);
+    }
+}
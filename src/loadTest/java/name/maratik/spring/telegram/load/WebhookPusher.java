@@ -0,0 +1,109 @@
+package name.maratik.spring.telegram.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers updates to bot webhook over limited number of connections, as telegram does,
+ * and records methods returned in webhook responses into {@link LoadStats}.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class WebhookPusher implements UpdateGenerator.Sink, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WebhookPusher.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final URL url;
+    private final LoadStats stats;
+    private final ExecutorService executor;
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param url         webhook url
+     * @param connections maximum number of simultaneous deliveries
+     */
+    public WebhookPusher(URL url, LoadStats stats, int connections) {
+        this.url = url;
+        this.stats = stats;
+        executor = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "webhook-pusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void accept(int updateId, String json) {
+        executor.execute(() -> push(json));
+    }
+
+    private void push(String json) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+            stats.delivered();
+            if (connection.getResponseCode() / 100 != 2) {
+                failures.increment();
+                InputStream error = connection.getErrorStream();
+                if (error != null) {
+                    error.close();
+                }
+                return;
+            }
+            byte[] response;
+            try (InputStream in = connection.getInputStream()) {
+                response = FakeBotApiServer.readAll(in);
+            }
+            if (response.length > 0) {
+                JsonNode body = OBJECT_MAPPER.readTree(response);
+                if (body.hasNonNull("method")) {
+                    stats.replied(body.get("method").asText(), body);
+                }
+            }
+        } catch (IOException e) {
+            failures.increment();
+            logger.error("Can not deliver update", e);
+        }
+    }
+
+    /**
+     * @return number of deliveries failed on transport or with non successful status
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Waits for deliveries in progress.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Deliveries are not finished in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package name.maratik.spring.telegram;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Answers callback queries which were not answered by their handlers, so telegram client stops waiting.
+ * <p>
+ * Query is answered either when its handler completes without answer or when deadline expires,
+ * whichever happens first. Answer returned by handler after deadline is dropped, as query is already answered.
+ * Repeated deliveries of a query are ignored while it is in flight.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class CallbackQueryAnswerer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(CallbackQueryAnswerer.class);
+
+    private final long deadlineNanos;
+    private final BiConsumer<Update, BotApiMethod<?>> sender;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<String, Pending> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param deadline how long handler may answer query itself
+     * @param sender   sends answers
+     */
+    public CallbackQueryAnswerer(Duration deadline, BiConsumer<Update, BotApiMethod<?>> sender) {
+        this.deadlineNanos = deadline.toNanos();
+        this.sender = sender;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "telegram-callback-query-answerer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts tracking callback query of {@code update}.
+     *
+     * @return {@code false} if the query is already in flight, so {@code update} should not be processed
+     */
+    public boolean begin(Update update) {
+        String id = update.getCallbackQuery().getId();
+        Pending pending = new Pending();
+        if (inFlight.putIfAbsent(id, pending) != null) {
+            logger.debug("Callback query {} is already in flight", id);
+            return false;
+        }
+        pending.deadline = scheduler.schedule(() -> {
+            if (inFlight.remove(id, pending)) {
+                logger.debug("Callback query {} is not answered in time", id);
+                sender.accept(update, makeAnswer(id));
+            }
+        }, deadlineNanos, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * Finishes tracking callback query of {@code update} whose handler produced {@code result}.
+     * Sends answer if {@code result} is not an answer.
+     *
+     * @return method to send as result of handler or {@code null} if nothing should be sent
+     */
+    public BotApiMethod<?> complete(Update update, BotApiMethod<?> result) {
+        String id = update.getCallbackQuery().getId();
+        Pending pending = inFlight.remove(id);
+        boolean answer = result instanceof AnswerCallbackQuery;
+        if (pending == null) {
+            if (answer) {
+                logger.debug("Callback query {} is already answered, dropping {}", id, result);
+                return null;
+            }
+            return result;
+        }
+        pending.cancel();
+        if (!answer) {
+            sender.accept(update, makeAnswer(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of callback queries being processed
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static AnswerCallbackQuery makeAnswer(String id) {
+        return new AnswerCallbackQuery().setCallbackQueryId(id);
+    }
+
+    private static class Pending {
+        /**
+         * {@code null} until deadline is scheduled. If query completes before that, expired deadline finds nothing.
+         */
+        private volatile ScheduledFuture<?> deadline;
+
+        private void cancel() {
+            ScheduledFuture<?> deadline = this.deadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+        }
+    }
+}
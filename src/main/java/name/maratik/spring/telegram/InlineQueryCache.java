@@ -0,0 +1,115 @@
+package name.maratik.spring.telegram;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Size bounded cache of inline query answers, which evicts answers after fixed time.
+ * Answers are keyed by user, query text and offset.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class InlineQueryCache {
+    private final Cache<Key, AnswerInlineQuery> cache;
+
+    /**
+     * @param maximumSize maximum number of cached answers
+     * @param ttl         how long answer is cached
+     */
+    public InlineQueryCache(long maximumSize, Duration ttl) {
+        cache = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * @return cached answer to {@code inlineQuery} bound to its id or {@code null} if there is no cached answer
+     */
+    public AnswerInlineQuery get(InlineQuery inlineQuery) {
+        AnswerInlineQuery answer = cache.getIfPresent(new Key(inlineQuery));
+        if (answer == null) {
+            return null;
+        }
+        return new AnswerInlineQuery()
+            .setInlineQueryId(inlineQuery.getId())
+            .setResults(answer.getResults())
+            .setCacheTime(answer.getCacheTime())
+            .setPersonal(answer.isPersonal())
+            .setNextOffset(answer.getNextOffset())
+            .setSwitchPmText(answer.getSwitchPmText())
+            .setSwitchPmParameter(answer.getSwitchPmParameter());
+    }
+
+    /**
+     * Caches {@code method} as answer to {@code inlineQuery} if it is {@link AnswerInlineQuery}.
+     */
+    public void put(InlineQuery inlineQuery, BotApiMethod<?> method) {
+        if (method instanceof AnswerInlineQuery) {
+            cache.put(new Key(inlineQuery), (AnswerInlineQuery) method);
+        }
+    }
+
+    /**
+     * @return number of queries answered from cache
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * @return number of queries which were not found in cache
+     */
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public String toString() {
+        return "InlineQueryCache{" +
+            "size=" + cache.size() +
+            ", stats=" + cache.stats() +
+            '}';
+    }
+
+    private static class Key {
+        private final long userId;
+        private final String query;
+        private final String offset;
+
+        private Key(InlineQuery inlineQuery) {
+            userId = inlineQuery.getFrom().getId();
+            query = inlineQuery.getQuery();
+            offset = inlineQuery.getOffset();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+
+            return userId == key.userId && Objects.equals(query, key.query) && Objects.equals(offset, key.offset);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(userId);
+            result = 31 * result + Objects.hashCode(query);
+            result = 31 * result + Objects.hashCode(offset);
+            return result;
+        }
+    }
+}
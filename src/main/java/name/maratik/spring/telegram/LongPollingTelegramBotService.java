@@ -5,17 +5,15 @@ import name.maratik.spring.telegram.config.TelegramBotBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.ApiContext;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.Optional;
 
 /**
  * Long polling implementation of Telegram Bot Service.
@@ -25,30 +23,42 @@ import java.util.concurrent.TimeUnit;
 public class LongPollingTelegramBotService extends TelegramBotService implements AutoCloseable {
     private static final Logger logger = LogManager.getLogger(LongPollingTelegramBotService.class);
 
+    private final TelegramBotsApi api;
+    private final String botDescription;
     private final String username;
     private final String token;
-    private final ExecutorService botExecutor;
     private final TelegramLongPollingBot client;
+    private final UpdateDispatcher dispatcher;
 
     public LongPollingTelegramBotService(
         TelegramBotBuilder botBuilder, TelegramBotsApi api, ConfigurableBeanFactory configurableBeanFactory
     ) {
         super(api, configurableBeanFactory);
+        this.api = api;
+        botDescription = botBuilder.toString();
         logger.info("Registering Long Polling with {}", botBuilder);
         username = botBuilder.getUsername();
         token = botBuilder.getToken();
-        botExecutor = new ThreadPoolExecutor(1, botBuilder.getMaxThreads(),
-            1L, TimeUnit.HOURS,
-            new SynchronousQueue<>()
+        client = new TelegramBotLongPollingImpl(botBuilder.getBotOptions() != null
+            ? botBuilder.getBotOptions()
+            : ApiContext.getInstance(DefaultBotOptions.class)
         );
+        dispatcher = new UpdateDispatcher(botBuilder, client);
+        applyOptions(botBuilder);
+    }
 
-        client = new TelegramBotLongPollingImpl();
-        try {
-            api.registerBot(client);
-        } catch (TelegramApiRequestException e) {
-            logger.error("Can not register Long Polling with {}", botBuilder, e);
-            throw new RuntimeException(e);
-        }
+    /**
+     * @return number of updates dropped because of queue overflow
+     */
+    public long getDroppedUpdates() {
+        return dispatcher.getDroppedUpdates();
+    }
+
+    /**
+     * @return rate limited sender, if {@link TelegramBotBuilder#rateLimitedSend(boolean)} is on
+     */
+    public Optional<OutboundSender> getOutboundSender() {
+        return dispatcher.getOutboundSender();
     }
 
     @Override
@@ -57,36 +67,45 @@ public class LongPollingTelegramBotService extends TelegramBotService implements
     }
 
     @Override
-    public void close() {
-        botExecutor.shutdown();
-        boolean terminated = false;
-        try {
-            terminated = botExecutor.awaitTermination(5, TimeUnit.SECONDS);
-            if (!terminated) {
-                logger.error("Bot executor did not terminated in 5 seconds");
-            }
-        } catch (InterruptedException e) {
-            logger.error("Bot executor service termination awaiting failed", e);
+    public String getBotUsername() {
+        return username;
+    }
+
+    @Override
+    protected void sendAsync(Update update, BotApiMethod<?> method, Runnable done) {
+        if (!dispatcher.enqueue(update, method, done)) {
+            super.sendAsync(update, method, done);
         }
+    }
 
-        if (!terminated) {
-            int droppedTasks = botExecutor.shutdownNow().size();
-            logger.error("Executor was abruptly shut down. {} tasks will not be executed", droppedTasks);
+    @Override
+    protected void registerBot() {
+        try {
+            api.registerBot(client);
+        } catch (TelegramApiRequestException e) {
+            logger.error("Can not register Long Polling with {}", botDescription, e);
+            throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public void close() {
+        dispatcher.close();
+        super.close();
+    }
+
     private class TelegramBotLongPollingImpl extends TelegramLongPollingBot {
+        private TelegramBotLongPollingImpl(DefaultBotOptions options) {
+            super(options);
+        }
+
         @Override
         public void onUpdateReceived(Update update) {
-            CompletableFuture.runAsync(() ->
-                updateProcess(update).ifPresent(result -> {
-                    try {
-                        getClient().execute(result);
-                        logger.debug("Update: {}. Message: {}. Successfully sent", update, result);
-                    } catch (TelegramApiException e) {
-                        logger.error("Update: {}. Can not send message {} to telegram: ", update, result, e);
-                    }
-                }), botExecutor);
+            if (acceptUpdate(update)) {
+                dispatcher.dispatch(update, LongPollingTelegramBotService.this::processAcceptedUpdate,
+                    () -> releaseUpdate(update)
+                );
+            }
         }
 
         @Override
@@ -0,0 +1,433 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.config.TelegramBotMetrics;
+import name.maratik.spring.telegram.util.TokenBucket;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queues methods to be sent to telegram and sends them asynchronously,
+ * respecting global and per chat rate limits.
+ * <p>
+ * Methods of one chat are sent in order of submission. Rate limits are applied by a single scheduling thread,
+ * actual sending is done by a pool of sender threads.
+ * <p>
+ * If telegram answers {@code 429 Too Many Requests}, the chat and the whole bot are held for {@code retry_after}
+ * seconds and the method is sent again before other methods of its chat.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class OutboundSender implements AutoCloseable {
+    /**
+     * Pseudo chat id for methods which are not bound to a chat, only global rate limit applies to them.
+     */
+    public static final long NO_CHAT = Long.MIN_VALUE;
+    private static final Logger logger = LogManager.getLogger(OutboundSender.class);
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int MAX_RETRIES = 5;
+    private static final Runnable NOOP = () -> { };
+
+    private final AbsSender client;
+    private final double chatRate;
+    private final TokenBucket globalBucket;
+    private final BlockingQueue<Outgoing> incoming = new LinkedBlockingQueue<>();
+    private final ExecutorService sendExecutor;
+    private final Thread scheduler;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final TelegramBotMetrics metrics;
+
+    /**
+     * Accessed only by scheduler thread.
+     */
+    private final Map<Long, ChatQueue> chats = new HashMap<>();
+    /**
+     * Chats with pending methods in round robin order. Accessed only by scheduler thread.
+     */
+    private final Queue<ChatQueue> ready = new ArrayDeque<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param client      client to send methods with
+     * @param globalRate  maximum methods per second sent by the bot
+     * @param chatRate    maximum methods per second sent to one chat
+     * @param sendThreads number of threads which perform requests to telegram
+     */
+    public OutboundSender(AbsSender client, double globalRate, double chatRate, int sendThreads) {
+        this(client, globalRate, chatRate, sendThreads, TelegramBotMetrics.NOOP);
+    }
+
+    /**
+     * @param client      client to send methods with
+     * @param globalRate  maximum methods per second sent by the bot
+     * @param chatRate    maximum methods per second sent to one chat
+     * @param sendThreads number of threads which perform requests to telegram
+     * @param metrics     receives send latencies
+     */
+    public OutboundSender(
+        AbsSender client, double globalRate, double chatRate, int sendThreads, TelegramBotMetrics metrics
+    ) {
+        this.client = client;
+        this.metrics = metrics;
+        this.chatRate = chatRate;
+        globalBucket = new TokenBucket(globalRate, Math.max(1, globalRate), System.nanoTime());
+        sendExecutor = Executors.newFixedThreadPool(sendThreads);
+        scheduler = new Thread(this::schedule, "telegram-outbound-scheduler");
+        scheduler.setDaemon(true);
+        scheduler.start();
+    }
+
+    /**
+     * Queues {@code method} to be sent to chat {@code chatId}.
+     */
+    public void send(long chatId, BotApiMethod<?> method) {
+        send(chatId, method, NOOP);
+    }
+
+    /**
+     * Queues {@code method} to be sent to chat {@code chatId}.
+     *
+     * @param done run when {@code method} is sent or could not be sent
+     */
+    public void send(long chatId, BotApiMethod<?> method, Runnable done) {
+        if (closed) {
+            rejectClosed(method, done);
+            return;
+        }
+        Outgoing outgoing = new Outgoing(chatId, method, done);
+        queueDepth.incrementAndGet();
+        incoming.add(outgoing);
+        // scheduler may have finished after the check above, then nobody takes the method
+        if (closed && incoming.remove(outgoing)) {
+            queueDepth.decrementAndGet();
+            rejectClosed(method, done);
+        }
+    }
+
+    private void rejectClosed(BotApiMethod<?> method, Runnable done) {
+        logger.error("Sender is closed, method {} will not be sent", method);
+        failedCount.increment();
+        metrics.recordSend(0, true);
+        done.run();
+    }
+
+    /**
+     * Queues {@code method} which is not bound to any chat, so only global rate limit applies.
+     */
+    public void send(BotApiMethod<?> method) {
+        send(NO_CHAT, method);
+    }
+
+    /**
+     * @return number of methods waiting to be sent
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return number of requests to telegram in progress
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of successfully sent methods
+     */
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * @return number of methods which could not be sent
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Sends queued methods, waiting up to 5 seconds for it, and stops sender threads.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            scheduler.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            logger.error("Outbound scheduler termination awaiting failed", e);
+            Thread.currentThread().interrupt();
+        }
+        if (scheduler.isAlive()) {
+            scheduler.interrupt();
+            logger.error("Outbound scheduler did not terminated in 5 seconds. {} methods will not be sent",
+                queueDepth.get()
+            );
+        }
+        sendExecutor.shutdown();
+        try {
+            if (!sendExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                int droppedTasks = sendExecutor.shutdownNow().size();
+                logger.error("Sender was abruptly shut down. {} methods will not be sent", droppedTasks);
+            }
+        } catch (InterruptedException e) {
+            logger.error("Sender termination awaiting failed", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule() {
+        long nextSweep = System.nanoTime() + SWEEP_INTERVAL_NANOS;
+        try {
+            while (!closed || queueDepth.get() > 0 || inFlight.get() > 0) {
+                long waitNanos = dispatchReady(System.nanoTime());
+                Outgoing outgoing = incoming.poll(waitNanos, TimeUnit.NANOSECONDS);
+                while (outgoing != null) {
+                    accept(outgoing);
+                    outgoing = incoming.poll();
+                }
+                long now = System.nanoTime();
+                if (now - nextSweep >= 0) {
+                    sweep(now);
+                    nextSweep = now + SWEEP_INTERVAL_NANOS;
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Outbound scheduler interrupted");
+        }
+    }
+
+    private void accept(Outgoing outgoing) {
+        ChatQueue chat = chats.computeIfAbsent(outgoing.chatId, this::newChatQueue);
+        switch (outgoing.kind) {
+            case SEND:
+                chat.pending.add(outgoing);
+                break;
+            case SENT:
+                chat.sending = false;
+                break;
+            case RETRY:
+                chat.sending = false;
+                chat.holdUntil(outgoing.retryAt);
+                globalBucket.holdUntil(outgoing.retryAt);
+                chat.pending.addFirst(outgoing);
+                break;
+            default:
+                throw new IllegalStateException("Unknown outgoing kind: " + outgoing.kind);
+        }
+        if (!chat.ready && !chat.sending && !chat.pending.isEmpty()) {
+            chat.ready = true;
+            ready.add(chat);
+        }
+    }
+
+    private ChatQueue newChatQueue(long chatId) {
+        return new ChatQueue(chatId, chatId == NO_CHAT ? null : new TokenBucket(chatRate, 1, System.nanoTime()));
+    }
+
+    /**
+     * Sends methods of chats which are allowed by rate limits.
+     *
+     * @return nanoseconds to wait until next method could be sent
+     */
+    private long dispatchReady(long now) {
+        long waitNanos = IDLE_WAIT_NANOS;
+        for (int i = ready.size(); i > 0; i--) {
+            ChatQueue chat = ready.element();
+            long chatWait = chat.nanosUntilAvailable(now);
+            if (chatWait == 0) {
+                if (!globalBucket.tryAcquire(now)) {
+                    return Math.min(waitNanos, globalBucket.nanosUntilAvailable(now));
+                }
+                chat.acquire(now);
+                // methods of a chat are sent one at a time to keep them in order,
+                // so the chat is marked as sending until completion marker is received
+                chat.sending = chat.isOrdered();
+                submit(chat.sending, chat.pending.remove());
+                chatWait = chat.nanosUntilAvailable(now);
+            }
+            ready.remove();
+            if (chat.pending.isEmpty() || chat.sending) {
+                chat.ready = false;
+            } else {
+                ready.add(chat);
+                waitNanos = Math.min(waitNanos, chatWait);
+            }
+        }
+        return waitNanos;
+    }
+
+    /**
+     * @param ordered whether completion marker should be sent back to the scheduler
+     */
+    private void submit(boolean ordered, Outgoing outgoing) {
+        BotApiMethod<?> method = outgoing.method;
+        queueDepth.decrementAndGet();
+        inFlight.incrementAndGet();
+        sendExecutor.execute(() -> {
+            long start = System.nanoTime();
+            boolean failed = true;
+            Outgoing next = ordered ? outgoing.sent() : null;
+            try {
+                client.execute(method);
+                failed = false;
+                sentCount.increment();
+                logger.debug("Method {} successfully sent", method.getMethod());
+            } catch (TelegramApiException e) {
+                long retryAfter = retryAfterNanos(e);
+                if (retryAfter >= 0 && outgoing.attempt < MAX_RETRIES) {
+                    failed = false;
+                    logger.warn("Too many requests, method {} will be sent again in {} ms",
+                        method.getMethod(), TimeUnit.NANOSECONDS.toMillis(retryAfter)
+                    );
+                    queueDepth.incrementAndGet();
+                    next = outgoing.retry(System.nanoTime() + retryAfter);
+                } else {
+                    failedCount.increment();
+                    logger.error("Can not send method {} to telegram: ", method, e);
+                }
+            } finally {
+                metrics.recordSend(System.nanoTime() - start, failed);
+                if (next == null || next.kind != Kind.RETRY) {
+                    outgoing.done.run();
+                }
+                if (next != null) {
+                    incoming.add(next);
+                }
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * @return nanoseconds to wait before sending again if telegram rejected request by flood control,
+     * {@code -1} if error is not retryable
+     */
+    private static long retryAfterNanos(TelegramApiException e) {
+        if (!(e instanceof TelegramApiRequestException)) {
+            return -1;
+        }
+        TelegramApiRequestException requestException = (TelegramApiRequestException) e;
+        ResponseParameters parameters = requestException.getParameters();
+        if (!Integer.valueOf(TOO_MANY_REQUESTS).equals(requestException.getErrorCode())
+            || parameters == null || parameters.getRetryAfter() == null) {
+            return -1;
+        }
+        return TimeUnit.SECONDS.toNanos(parameters.getRetryAfter());
+    }
+
+    /**
+     * Forgets idle chats which have no rate limit debt.
+     */
+    private void sweep(long now) {
+        for (Iterator<ChatQueue> it = chats.values().iterator(); it.hasNext(); ) {
+            ChatQueue chat = it.next();
+            if (!chat.ready && !chat.sending && (chat.bucket == null || chat.bucket.isFull(now))) {
+                it.remove();
+            }
+        }
+    }
+
+    private enum Kind {
+        /**
+         * New method to send.
+         */
+        SEND,
+        /**
+         * Marker of completed send to the chat.
+         */
+        SENT,
+        /**
+         * Method rejected by flood control, which should be sent again not earlier than {@link Outgoing#retryAt}.
+         */
+        RETRY
+    }
+
+    private static class Outgoing {
+        private final Kind kind;
+        private final long chatId;
+        private final BotApiMethod<?> method;
+        private final Runnable done;
+        private final int attempt;
+        private final long retryAt;
+
+        private Outgoing(long chatId, BotApiMethod<?> method, Runnable done) {
+            this(Kind.SEND, chatId, method, done, 0, 0);
+        }
+
+        private Outgoing(Kind kind, long chatId, BotApiMethod<?> method, Runnable done, int attempt, long retryAt) {
+            this.kind = kind;
+            this.chatId = chatId;
+            this.method = method;
+            this.done = done;
+            this.attempt = attempt;
+            this.retryAt = retryAt;
+        }
+
+        private Outgoing sent() {
+            return new Outgoing(Kind.SENT, chatId, null, NOOP, attempt, 0);
+        }
+
+        private Outgoing retry(long retryAt) {
+            return new Outgoing(Kind.RETRY, chatId, method, done, attempt + 1, retryAt);
+        }
+    }
+
+    private static class ChatQueue {
+        private final long chatId;
+        private final TokenBucket bucket;
+        private final Deque<Outgoing> pending = new ArrayDeque<>();
+        private boolean ready;
+        private boolean sending;
+
+        private ChatQueue(long chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+
+        private long nanosUntilAvailable(long now) {
+            return bucket == null ? 0 : bucket.nanosUntilAvailable(now);
+        }
+
+        private void acquire(long now) {
+            if (bucket != null) {
+                bucket.tryAcquire(now);
+            }
+        }
+
+        private void holdUntil(long untilNanos) {
+            if (bucket != null) {
+                bucket.holdUntil(untilNanos);
+            }
+        }
+
+        private boolean isOrdered() {
+            return bucket != null;
+        }
+    }
+}
@@ -2,11 +2,21 @@ package name.maratik.spring.telegram;
 
 import name.maratik.spring.telegram.annotation.TelegramBot;
 import name.maratik.spring.telegram.annotation.TelegramCallbackQuery;
+import name.maratik.spring.telegram.annotation.TelegramChannelPost;
+import name.maratik.spring.telegram.annotation.TelegramChosenInlineQuery;
 import name.maratik.spring.telegram.annotation.TelegramCommand;
+import name.maratik.spring.telegram.annotation.TelegramEditedChannelPost;
+import name.maratik.spring.telegram.annotation.TelegramEditedMessage;
 import name.maratik.spring.telegram.annotation.TelegramForward;
 import name.maratik.spring.telegram.annotation.TelegramHelp;
+import name.maratik.spring.telegram.annotation.TelegramInlineQuery;
 import name.maratik.spring.telegram.annotation.TelegramMessage;
+import name.maratik.spring.telegram.annotation.TelegramPreCheckoutQuery;
+import name.maratik.spring.telegram.annotation.TelegramShippingQuery;
+import name.maratik.spring.telegram.model.UpdateKind;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.BeansException;
@@ -17,9 +27,13 @@ import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.lang.NonNull;
 
 import javax.annotation.Priority;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.OptionalLong;
 
@@ -32,8 +46,18 @@ import java.util.OptionalLong;
 @Priority(10)
 public class TelegramBeanPostProcessor implements BeanPostProcessor {
     private static final Logger logger = LogManager.getLogger(TelegramBeanPostProcessor.class);
+    private static final Map<Class<? extends Annotation>, UpdateKind> UPDATE_HANDLER_ANNOTATIONS =
+        ImmutableMap.<Class<? extends Annotation>, UpdateKind>builder()
+            .put(TelegramEditedMessage.class, UpdateKind.EDITED_MESSAGE)
+            .put(TelegramChannelPost.class, UpdateKind.CHANNEL_POST)
+            .put(TelegramEditedChannelPost.class, UpdateKind.EDITED_CHANNEL_POST)
+            .put(TelegramChosenInlineQuery.class, UpdateKind.CHOSEN_INLINE_QUERY)
+            .put(TelegramShippingQuery.class, UpdateKind.SHIPPING_QUERY)
+            .put(TelegramPreCheckoutQuery.class, UpdateKind.PRE_CHECKOUT_QUERY)
+            .build();
 
-    private final TelegramBotService telegramBotService;
+    private final List<TelegramBotService> telegramBotServices;
+    private final Map<String, String> botNameByBean = new HashMap<>();
     private final Map<String, Class<?>> botControllerMap = new HashMap<>();
     private final Map<OptionalLong, Map<String, Class<?>>> botControllerMapByUserId = new HashMap<>();
     private final EmbeddedValueResolver embeddedValueResolver;
@@ -41,7 +65,16 @@ public class TelegramBeanPostProcessor implements BeanPostProcessor {
     public TelegramBeanPostProcessor(
         TelegramBotService telegramBotService, ConfigurableBeanFactory configurableBeanFactory
     ) {
-        this.telegramBotService = telegramBotService;
+        this(Collections.singletonList(telegramBotService), configurableBeanFactory);
+    }
+
+    /**
+     * Binds controllers to bots selected by {@link TelegramBot#bot()}.
+     */
+    public TelegramBeanPostProcessor(
+        Collection<? extends TelegramBotService> telegramBotServices, ConfigurableBeanFactory configurableBeanFactory
+    ) {
+        this.telegramBotServices = ImmutableList.copyOf(telegramBotServices);
         embeddedValueResolver = new EmbeddedValueResolver(configurableBeanFactory);
     }
 
@@ -50,6 +83,13 @@ public class TelegramBeanPostProcessor implements BeanPostProcessor {
         Class<?> beanClass = bean.getClass();
         TelegramBot telegramBot = AnnotatedElementUtils.findMergedAnnotation(beanClass, TelegramBot.class);
         if (telegramBot != null) {
+            String botName = embeddedValueResolver.resolveStringValue(telegramBot.bot());
+            if (botName != null && !botName.isEmpty()) {
+                if (telegramBotServices.stream().noneMatch(service -> botName.equals(service.getBotName()))) {
+                    logger.warn("TelegramBot controller: {} belongs to unknown bot: {}", beanClass, botName);
+                }
+                botNameByBean.put(beanName, botName);
+            }
             if (telegramBot.userId().length != 0) {
                 for (String userId : telegramBot.userId()) {
                     String evalUserId = embeddedValueResolver.resolveStringValue(userId);
@@ -72,72 +112,125 @@ public class TelegramBeanPostProcessor implements BeanPostProcessor {
 
     @Override
     public Object postProcessAfterInitialization(@NonNull Object bean, String beanName) throws BeansException {
-        bindControllers(bean, beanName, botControllerMap.get(beanName), OptionalLong.empty());
-        botControllerMapByUserId.forEach((userId, original) ->
-            bindControllers(bean, beanName, original.get(beanName), userId)
-        );
+        Class<?> original = botControllerMap.get(beanName);
+        if (original == null && botControllerMapByUserId.values().stream()
+            .noneMatch(controllers -> controllers.containsKey(beanName))) {
+            return bean;
+        }
+        String botName = botNameByBean.get(beanName);
+        for (TelegramBotService telegramBotService : telegramBotServices) {
+            if (botName != null && !botName.equals(telegramBotService.getBotName())) {
+                continue;
+            }
+            telegramBotService.modifyHandlers(() -> {
+                bindControllers(telegramBotService, bean, beanName, original, OptionalLong.empty());
+                botControllerMapByUserId.forEach((userId, controllers) -> bindControllers(
+                    telegramBotService, bean, beanName, controllers.get(beanName), userId
+                ));
+            });
+        }
         return bean;
     }
 
-    private void bindControllers(@NonNull Object bean, String beanName, Class<?> original, OptionalLong userId) {
-        if (original != null) {
-            logger.info("Processing class {} as bean {} for user {}",
-                bean::getClass, () -> beanName, () -> userId
-            );
-            for (Method method : original.getMethods()) {
-                if (!Modifier.isPublic(method.getModifiers())) {
-                    continue;
-                }
-                logger.info("Found method {}", method::getName);
-                if (AnnotatedElementUtils.hasAnnotation(method, TelegramCommand.class)) {
-                    bindCommandController(bean, method, userId);
-                }
-                if (AnnotatedElementUtils.hasAnnotation(method, TelegramMessage.class)) {
-                    bindMessageController(bean, method, userId);
-                }
-                if (AnnotatedElementUtils.hasAnnotation(method, TelegramForward.class)) {
-                    bindForwardController(bean, method, userId);
-                }
-                if (AnnotatedElementUtils.hasAnnotation(method, TelegramHelp.class)) {
-                    bindHelpPrefix(bean, method, userId);
-                }
-                if (AnnotatedElementUtils.hasAnnotation(method, TelegramCallbackQuery.class)) {
-                    bindCallbackQueryController(bean, method, userId);
-                }
+    private void bindControllers(
+        TelegramBotService telegramBotService, @NonNull Object bean, String beanName, Class<?> original,
+        OptionalLong userId
+    ) {
+        if (original == null) {
+            return;
+        }
+        logger.info("Processing class {} as bean {} for user {} of bot {}",
+            bean::getClass, () -> beanName, () -> userId, telegramBotService::getBotName
+        );
+        for (Method method : original.getMethods()) {
+            if (!Modifier.isPublic(method.getModifiers())) {
+                continue;
+            }
+            logger.info("Found method {}", method::getName);
+            if (AnnotatedElementUtils.hasAnnotation(method, TelegramCommand.class)) {
+                bindCommandController(telegramBotService, bean, method, userId);
             }
+            if (AnnotatedElementUtils.hasAnnotation(method, TelegramMessage.class)) {
+                bindMessageController(telegramBotService, bean, method, userId);
+            }
+            if (AnnotatedElementUtils.hasAnnotation(method, TelegramForward.class)) {
+                bindForwardController(telegramBotService, bean, method, userId);
+            }
+            if (AnnotatedElementUtils.hasAnnotation(method, TelegramHelp.class)) {
+                bindHelpPrefix(telegramBotService, bean, method, userId);
+            }
+            if (AnnotatedElementUtils.hasAnnotation(method, TelegramCallbackQuery.class)) {
+                bindCallbackQueryController(telegramBotService, bean, method, userId);
+            }
+            if (AnnotatedElementUtils.hasAnnotation(method, TelegramInlineQuery.class)) {
+                bindInlineQueryController(telegramBotService, bean, method, userId);
+            }
+            UPDATE_HANDLER_ANNOTATIONS.forEach((annotation, kind) -> {
+                if (AnnotatedElementUtils.hasAnnotation(method, annotation)) {
+                    bindUpdateController(telegramBotService, bean, method, kind, userId);
+                }
+            });
         }
         telegramBotService.addHelpMethod(userId);
     }
 
-    private void bindMessageController(Object bean, Method method, OptionalLong userId) {
+    private void bindMessageController(
+        TelegramBotService telegramBotService, Object bean, Method method, OptionalLong userId
+    ) {
         logger.info("Init TelegramBot message controller: {}:{} for {}",
             bean::getClass, method::getName, () -> userId
         );
         telegramBotService.addDefaultMessageHandler(bean, method, userId);
     }
 
-    private void bindCallbackQueryController(Object bean, Method method, OptionalLong userId) {
+    private void bindCallbackQueryController(
+        TelegramBotService telegramBotService, Object bean, Method method, OptionalLong userId
+    ) {
         logger.info("Init TelegramBot callback query controller: {}:{} for {}",
             bean::getClass, method::getName, () -> userId
         );
-        telegramBotService.addDefaultCallbackQueryHandler(bean, method, userId);
+        telegramBotService.addCallbackQueryHandler(bean, method, userId);
+    }
+
+    private void bindInlineQueryController(
+        TelegramBotService telegramBotService, Object bean, Method method, OptionalLong userId
+    ) {
+        logger.info("Init TelegramBot inline query controller: {}:{} for {}",
+            bean::getClass, method::getName, () -> userId
+        );
+        telegramBotService.addInlineQueryHandler(bean, method, userId);
+    }
+
+    private void bindUpdateController(
+        TelegramBotService telegramBotService, Object bean, Method method, UpdateKind kind, OptionalLong userId
+    ) {
+        logger.info("Init TelegramBot {} controller: {}:{} for {}",
+            () -> kind, bean::getClass, method::getName, () -> userId
+        );
+        telegramBotService.addUpdateHandler(bean, method, kind, userId);
     }
 
-    private void bindCommandController(Object bean, Method method, OptionalLong userId) {
+    private void bindCommandController(
+        TelegramBotService telegramBotService, Object bean, Method method, OptionalLong userId
+    ) {
         logger.info("Init TelegramBot command controller: {}:{} for {}",
             bean::getClass, method::getName, () -> userId
         );
         telegramBotService.addHandler(bean, method, userId);
     }
 
-    private void bindForwardController(Object bean, Method method, OptionalLong userId) {
+    private void bindForwardController(
+        TelegramBotService telegramBotService, Object bean, Method method, OptionalLong userId
+    ) {
         logger.info("Init TelegramBot forward controller: {}:{} for {}",
             bean::getClass, method::getName, () -> userId
         );
         telegramBotService.addForwardMessageHandler(bean, method, userId);
     }
 
-    private void bindHelpPrefix(Object bean, Method method, OptionalLong userId) {
+    private void bindHelpPrefix(
+        TelegramBotService telegramBotService, Object bean, Method method, OptionalLong userId
+    ) {
         logger.info("Init TelegramBot help prefix method: {}:{} for {}",
             bean::getClass, method::getName, () -> userId
         );
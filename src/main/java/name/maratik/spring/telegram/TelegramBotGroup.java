@@ -0,0 +1,105 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+import name.maratik.spring.telegram.config.TelegramBotGroupBuilder;
+import name.maratik.spring.telegram.config.TelegramBotMetrics;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Group of Telegram Bot Services, which share one update executor.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class TelegramBotGroup implements AutoCloseable, SmartInitializingSingleton {
+    private static final Logger logger = LogManager.getLogger(TelegramBotGroup.class);
+
+    private final UpdateExecutor updateExecutor;
+    private final Map<String, TelegramBotService> services;
+
+    public TelegramBotGroup(
+        TelegramBotGroupBuilder groupBuilder, TelegramBotsApi api, ConfigurableBeanFactory configurableBeanFactory
+    ) {
+        logger.info("Registering bot group with {}", groupBuilder);
+        updateExecutor = new UpdateExecutor(groupBuilder.getExecutor(), groupBuilder.isVirtualThreads(),
+            groupBuilder.getMaxThreads(), groupBuilder.getQueueCapacity(), groupBuilder.getOverflowPolicy(),
+            groupBuilder.getMetrics()
+        );
+        Map<String, TelegramBotService> services = new LinkedHashMap<>();
+        try {
+            groupBuilder.getBots().forEach((userBotBuilder, type) -> {
+                if (userBotBuilder.getUpdateExecutor() != null) {
+                    throw new IllegalArgumentException("Bot " + userBotBuilder.getUsername() +
+                        " of group has own update executor, group one is shared by all bots"
+                    );
+                }
+                // builder may be a bean shared with other users, so it is not modified
+                TelegramBotBuilder botBuilder = new TelegramBotBuilder(userBotBuilder)
+                    .updateExecutor(updateExecutor);
+                if (botBuilder.getMetrics() == TelegramBotMetrics.NOOP) {
+                    botBuilder.metrics(groupBuilder.getMetrics());
+                }
+                TelegramBotService service = type.createService(botBuilder, api, configurableBeanFactory);
+                if (services.putIfAbsent(service.getBotName(), service) != null) {
+                    service.close();
+                    throw new IllegalStateException("Duplicate bot name: " + service.getBotName());
+                }
+            });
+        } catch (RuntimeException e) {
+            services.values().forEach(TelegramBotService::close);
+            updateExecutor.close();
+            throw e;
+        }
+        this.services = ImmutableMap.copyOf(services);
+    }
+
+    /**
+     * Bot services in order of {@link TelegramBotGroupBuilder#bot(
+     * name.maratik.spring.telegram.config.TelegramBotType, TelegramBotBuilder)}.
+     */
+    public Collection<TelegramBotService> getServices() {
+        return services.values();
+    }
+
+    /**
+     * @param name name of the bot, see {@link TelegramBotBuilder#name(String)}
+     */
+    public Optional<TelegramBotService> getService(String name) {
+        return Optional.ofNullable(services.get(name));
+    }
+
+    /**
+     * @return number of updates of all bots dropped because of queue overflow
+     */
+    public long getDroppedUpdates() {
+        return updateExecutor.getDroppedUpdates();
+    }
+
+    /**
+     * Publishes handlers of all bots and registers them in telegram,
+     * see {@link TelegramBotService#afterSingletonsInstantiated()}.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        services.values().forEach(TelegramBotService::afterSingletonsInstantiated);
+    }
+
+    /**
+     * Waits for updates being processed, then closes bots.
+     */
+    @Override
+    public void close() {
+        updateExecutor.close();
+        services.values().forEach(TelegramBotService::close);
+    }
+}
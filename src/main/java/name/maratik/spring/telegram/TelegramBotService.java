@@ -1,47 +1,72 @@
 package name.maratik.spring.telegram;
 
+import name.maratik.spring.telegram.annotation.TelegramCallbackData;
 import name.maratik.spring.telegram.annotation.TelegramCallbackQuery;
 import name.maratik.spring.telegram.annotation.TelegramCommand;
+import name.maratik.spring.telegram.annotation.TelegramEditedMessage;
+import name.maratik.spring.telegram.annotation.TelegramFast;
 import name.maratik.spring.telegram.annotation.TelegramForward;
 import name.maratik.spring.telegram.annotation.TelegramHelp;
+import name.maratik.spring.telegram.annotation.TelegramInlineQuery;
 import name.maratik.spring.telegram.annotation.TelegramMessage;
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+import name.maratik.spring.telegram.config.TelegramBotMetrics;
 import name.maratik.spring.telegram.model.CallbackQueryId;
 import name.maratik.spring.telegram.model.TelegramBotCommand;
 import name.maratik.spring.telegram.model.TelegramHandler;
 import name.maratik.spring.telegram.model.TelegramMessageCommand;
-import name.maratik.spring.telegram.util.Util;
+import name.maratik.spring.telegram.model.UpdateKind;
+import name.maratik.spring.telegram.util.CallbackDataCodec;
+import name.maratik.spring.telegram.util.ImmutableLongMap;
+import name.maratik.spring.telegram.util.PrefixMatcher;
+import name.maratik.spring.telegram.util.UpdateIdFilter;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.EmbeddedValueResolver;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.telegram.telegrambots.bots.DefaultAbsSender;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
 import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.updateshandlers.SentCallback;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -52,24 +77,80 @@ import java.util.stream.Stream;
  * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
  */
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-public abstract class TelegramBotService implements AutoCloseable {
+public abstract class TelegramBotService implements AutoCloseable, SmartInitializingSingleton {
     private static final Logger logger = LogManager.getLogger(TelegramBotService.class);
     private static final String DEFAULT_PATTERN_COMMAND_SUFFIX = "*";
-    private static final Comparator<Map.Entry<String, ?>> KEY_LENGTH_COMPARATOR =
-        Comparator.comparing(Map.Entry::getKey, Comparator.comparingInt(String::length));
     private static final Comparator<TelegramBotCommand> TELEGRAM_BOT_COMMAND_COMPARATOR =
         Comparator.comparing(
             TelegramBotCommand::getCommand,
             Comparator.comparing(ImmutableSet.of("/license", "/help")::contains)
         ).thenComparing(TelegramBotCommand::getCommand);
 
-    private final Map<OptionalLong, Handlers> handlers = new HashMap<>();
+    private final Object registryLock = new Object();
+    /**
+     * Handler sets being registered. Guarded by {@link #registryLock}.
+     */
+    private final Map<OptionalLong, Handlers.Builder> handlerBuilders = new HashMap<>();
+    /**
+     * Whether registration changes are published to {@link #handlers} immediately.
+     * Guarded by {@link #registryLock}.
+     */
+    private boolean published;
+    /**
+     * Depth of nested {@link #modifyHandlers(Runnable)} calls, publishing is deferred while it is positive.
+     * Guarded by {@link #registryLock}.
+     */
+    private int batchDepth;
+    /**
+     * Whether {@link #handlerBuilders} has changes not published yet. Guarded by {@link #registryLock}.
+     */
+    private boolean changed;
+    /**
+     * User keys which already have help method. Guarded by {@link #registryLock}.
+     */
+    private final Set<OptionalLong> helpMethodKeys = new HashSet<>();
+    private volatile HandlerRegistry handlers = HandlerRegistry.EMPTY;
     private final EmbeddedValueResolver embeddedValueResolver;
-    private final List<ProcessorDescriptor> processors;
+    /**
+     * Processor for each kind of update. Modified only during construction.
+     */
+    private final Map<UpdateKind, Function<Update, Optional<BotApiMethod<?>>>> processors =
+        new EnumMap<>(UpdateKind.class);
+    /**
+     * Kinds of updates with processor replaced by subclass. Modified only during construction.
+     */
+    private final Set<UpdateKind> customProcessors = EnumSet.noneOf(UpdateKind.class);
     private final Map<Type, BiFunction<TelegramMessageCommand, Update, ?>> messageArgumentMapper;
     private final Map<Type, Function<Update, ?>> callbackQueryArgumentMapper;
+    private final Map<UpdateKind, Map<Type, Function<Update, ?>>> updateArgumentMappers =
+        new EnumMap<>(UpdateKind.class);
+    /**
+     * Number of unfinished parts of processing by accepted update id: the processing itself,
+     * pending asynchronous results of handlers and results being sent.
+     */
+    private final ConcurrentMap<Integer, Integer> unfinishedUpdates = new ConcurrentHashMap<>();
 
-    private String patternCommandSuffix = DEFAULT_PATTERN_COMMAND_SUFFIX;
+    private volatile String patternCommandSuffix = DEFAULT_PATTERN_COMMAND_SUFFIX;
+    /**
+     * {@code null} if callback queries are not answered automatically. Set only during construction.
+     */
+    private CallbackQueryAnswerer callbackQueryAnswerer;
+    /**
+     * {@code null} if redelivered updates are not dropped. Set only during construction.
+     */
+    private UpdateIdFilter updateIdFilter;
+    /**
+     * Set only during construction.
+     */
+    private String botName;
+    /**
+     * Set only during construction.
+     */
+    private TelegramBotMetrics metrics = TelegramBotMetrics.NOOP;
+    /**
+     * Set only during construction.
+     */
+    private UpdateTracer tracer = UpdateTracer.DISABLED;
 
     /**
      * @param api                     initialized telegram bots api
@@ -89,15 +170,18 @@ public abstract class TelegramBotService implements AutoCloseable {
         Function<Update, Long> callbackQueryUserIdExtractor = update ->
             update.getCallbackQuery().getFrom().getId().longValue();
 
-        processors = ImmutableList.of(
-            new ProcessorDescriptor(Update::hasMessage, this::messageProcess),
-            new ProcessorDescriptor(Update::hasCallbackQuery, this::callbackQueryProcess)
-        );
+        for (UpdateKind kind : UpdateKind.values()) {
+            processors.put(kind, update -> updateKindProcess(kind, update));
+            updateArgumentMappers.put(kind, makeUpdateArgumentMapper(api, kind));
+        }
+        processors.put(UpdateKind.MESSAGE, this::messageProcess);
+        processors.put(UpdateKind.CALLBACK_QUERY, this::callbackQueryProcess);
+        processors.put(UpdateKind.INLINE_QUERY, this::inlineQueryProcess);
 
         messageArgumentMapper = ImmutableMap.<Type, BiFunction<TelegramMessageCommand, Update, ?>>builder()
             .put(Update.class, (telegramMessageCommand, update) -> update)
             .put(TelegramMessageCommand.class, (telegramMessageCommand, update) -> telegramMessageCommand)
-            .put(String.class, (telegramMessageCommand, update) -> telegramMessageCommand.getArgument().orElse(null))
+            .put(String.class, (telegramMessageCommand, update) -> telegramMessageCommand.getArgumentOrNull())
             .put(TelegramBotsApi.class, (telegramMessageCommand, update) -> api)
             .put(TelegramBotService.class, (telegramMessageCommand, update) -> this)
             .put(DefaultAbsSender.class, (telegramMessageCommand, update) -> getClient())
@@ -131,6 +215,28 @@ public abstract class TelegramBotService implements AutoCloseable {
         this(api, configurableBeanFactory, DEFAULT_PATTERN_COMMAND_SUFFIX);
     }
 
+    private Map<Type, Function<Update, ?>> makeUpdateArgumentMapper(TelegramBotsApi api, UpdateKind kind) {
+        Function<Update, Long> userIdExtractor = update -> {
+            User user = kind.getUser(update);
+            return user != null ? user.getId().longValue() : kind.getChatKey(update);
+        };
+        ImmutableMap.Builder<Type, Function<Update, ?>> builder = ImmutableMap.builder();
+        if (kind == UpdateKind.INLINE_QUERY) {
+            builder.put(String.class, update -> update.getInlineQuery().getQuery());
+        }
+        return builder
+            .put(Update.class, update -> update)
+            .put(UpdateKind.class, update -> kind)
+            .put(TelegramBotsApi.class, update -> api)
+            .put(TelegramBotService.class, update -> this)
+            .put(DefaultAbsSender.class, update -> getClient())
+            .put(kind.getPayloadType(), kind::getPayload)
+            .put(User.class, kind::getUser)
+            .put(long.class, userIdExtractor)
+            .put(Long.class, userIdExtractor)
+            .build();
+    }
+
     /**
      * @return suffix for pattern command
      */
@@ -139,77 +245,230 @@ public abstract class TelegramBotService implements AutoCloseable {
     }
 
     public void setPatternCommandSuffix(String patternCommandSuffix) {
-        this.patternCommandSuffix = patternCommandSuffix;
+        synchronized (registryLock) {
+            this.patternCommandSuffix = patternCommandSuffix;
+            handlersChanged();
+        }
     }
 
     /**
      * Main dispatcher method which takes {@link Update} object and calls controller method to process update.
+     * Returned result is considered sent, when redelivered updates are dropped.
      */
     @SuppressWarnings("WeakerAccess")
     public Optional<BotApiMethod<?>> updateProcess(Update update) {
-        logger.debug("Update {} received", update);
-        return processors.stream()
-            .filter(processorDescriptor -> processorDescriptor.test(update))
-            .findFirst()
-            .flatMap(processorDescriptor -> processorDescriptor.apply(update));
+        if (!acceptUpdate(update)) {
+            return Optional.empty();
+        }
+        try {
+            return processAcceptedUpdate(update);
+        } finally {
+            releaseUpdate(update);
+        }
+    }
+
+    /**
+     * Checks that {@code update} is not redelivered, if {@link TelegramBotBuilder#updateIdWindow(int)} is set.
+     * Accepted update is not completed until {@link #releaseUpdate(Update)} is called
+     * and asynchronous results of its handler are sent.
+     *
+     * @return {@code false} if update was already received and should not be processed
+     */
+    protected final boolean acceptUpdate(Update update) {
+        Integer updateId = update.getUpdateId();
+        if (updateIdFilter == null || updateId == null) {
+            return true;
+        }
+        if (!updateIdFilter.accept(updateId)) {
+            logger.debug("Update {} is already received", updateId);
+            return false;
+        }
+        holdUpdate(update);
+        return true;
+    }
+
+    /**
+     * Processes update {@link #acceptUpdate(Update) accepted} before.
+     */
+    protected final Optional<BotApiMethod<?>> processAcceptedUpdate(Update update) {
+        long start = System.nanoTime();
+        metrics.recordUpdateStarted();
+        UpdateKind kind = UpdateKind.of(update);
+        try {
+            Function<Update, Optional<BotApiMethod<?>>> processor = kind == null ? null : processors.get(kind);
+            if (processor == null) {
+                logger.debug("No processor for update {}", update.getUpdateId());
+                return Optional.empty();
+            }
+            return processor.apply(update);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.recordUpdate(kind, nanos);
+            tracer.traceUpdate(update, kind, nanos);
+        }
+    }
+
+    /**
+     * Completes update {@link #acceptUpdate(Update) accepted} before, when its processing and sending of its result
+     * are finished. Id of update is completed in {@link UpdateIdFilter} when asynchronous results of its handler
+     * are sent as well.
+     */
+    protected final void releaseUpdate(Update update) {
+        Integer updateId = update.getUpdateId();
+        if (updateIdFilter != null && updateId != null
+            && unfinishedUpdates.computeIfPresent(updateId, (id, parts) -> parts == 1 ? null : parts - 1) == null) {
+            updateIdFilter.complete(updateId);
+        }
+    }
+
+    private void holdUpdate(Update update) {
+        Integer updateId = update.getUpdateId();
+        if (updateIdFilter != null && updateId != null) {
+            unfinishedUpdates.merge(updateId, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Replaces processor of updates of {@code kind}. Should be called only from constructor of subclass.
+     */
+    protected final void setProcessor(UpdateKind kind, Function<Update, Optional<BotApiMethod<?>>> processor) {
+        processors.put(kind, processor);
+        customProcessors.add(kind);
+    }
+
+    private Optional<BotApiMethod<?>> inlineQueryProcess(Update update) {
+        InlineQuery inlineQuery = update.getInlineQuery();
+        Handlers handlers = this.handlers.get(inlineQuery.getFrom().getId());
+        TelegramHandler handler = handlers.getUpdateHandler(UpdateKind.INLINE_QUERY);
+        if (handler == null) {
+            return Optional.empty();
+        }
+        InlineQueryCache cache = handlers.getInlineQueryCache();
+        if (cache != null) {
+            AnswerInlineQuery cached = cache.get(inlineQuery);
+            if (cached != null) {
+                logger.debug("Inline query {} answered from cache", inlineQuery.getId());
+                return Optional.of(cached);
+            }
+        }
+        Optional<BotApiMethod<?>> result = handleExceptions(() -> processHandler(handler, null, update), update);
+        if (cache != null) {
+            result.ifPresent(method -> cache.put(inlineQuery, method));
+        }
+        return result;
+    }
+
+    private Optional<BotApiMethod<?>> updateKindProcess(UpdateKind kind, Update update) {
+        return Optional.ofNullable(handlers.get(kind.getChatKey(update)).getUpdateHandler(kind))
+            .flatMap(handler -> handleExceptions(
+                () -> processHandler(handler, null, update),
+                update
+            ));
     }
 
     private Optional<BotApiMethod<?>> callbackQueryProcess(Update update) {
-        return Optional.ofNullable(getOrDefault(Util.optionalOf(update
-                .getCallbackQuery()
-                .getFrom()
-                .getId()
-                .longValue()
-            ))
-                .getDefaultCallbackQueryHandler()
-        ).flatMap(handler -> handleExceptions(
-            () -> processHandler(handler, makeCallbackQueryArgumentList(handler.getMethod(), update)),
+        TelegramHandler handler = findCallbackQueryHandler(update.getCallbackQuery());
+        if (callbackQueryAnswerer == null) {
+            return Optional.ofNullable(handler).flatMap(callbackQueryHandler -> handleExceptions(
+                () -> processHandler(callbackQueryHandler, null, update),
+                update
+            ));
+        }
+        if (!callbackQueryAnswerer.begin(update)) {
+            return Optional.empty();
+        }
+        if (handler == null) {
+            return Optional.ofNullable(callbackQueryAnswerer.complete(update, null));
+        }
+        TelegramHandler callbackQueryHandler = handler;
+        Optional<BotApiMethod<?>> result = handleExceptions(
+            () -> processHandler(callbackQueryHandler, null, update),
             update
-        ));
+        );
+        if (callbackQueryHandler.getReturnKind() == TelegramHandler.ReturnKind.COMPLETION_STAGE) {
+            // answered when stage completes, or by deadline if handler failed before returning stage
+            return result;
+        }
+        return Optional.ofNullable(callbackQueryAnswerer.complete(update, result.orElse(null)));
     }
 
-    private Optional<BotApiMethod<?>> messageProcess(Update update) {
-        TelegramMessageCommand command = new TelegramMessageCommand(update);
-        Optional<TelegramHandler> optionalCommandHandler;
-        OptionalLong userKey = Util.optionalOf(update.getMessage().getChatId());
-        Handlers handlers = getOrDefault(userKey);
-
-        if (command.getForwardedFrom().isPresent()) {
-            optionalCommandHandler = Optional.ofNullable(
-                handlers.getForwardHandlerList().getOrDefault(command.getForwardedFrom().getAsLong(),
-                    handlers.getDefaultForwardHandler()
-                )
-            );
-        } else {
-            Optional<String> commandCommandOpt = command.getCommand();
-            optionalCommandHandler = commandCommandOpt.map(cmd -> handlers.getCommandList().get(cmd));
-            if (!optionalCommandHandler.isPresent()) {
-                if (commandCommandOpt.isPresent()) {
-                    String commandCommand = commandCommandOpt.get();
-                    optionalCommandHandler = handlers.getPatternCommandList().entrySet().stream()
-                        .filter(entry -> commandCommand.startsWith(entry.getKey()))
-                        .max(KEY_LENGTH_COMPARATOR)
-                        .map(Map.Entry::getValue);
-                }
-                if (!optionalCommandHandler.isPresent()) {
-                    optionalCommandHandler = Optional.ofNullable(handlers.getDefaultMessageHandler());
-                }
+    private TelegramHandler findCallbackQueryHandler(CallbackQuery callbackQuery) {
+        Handlers handlers = this.handlers.get(callbackQuery.getFrom().getId());
+        String data = callbackQuery.getData();
+        TelegramHandler handler = null;
+        if (data != null) {
+            handler = handlers.getCallbackQueryList().get(data);
+            if (handler == null) {
+                handler = handlers.getPatternCallbackQueryMatcher().findLongestPrefix(data);
             }
         }
+        if (handler == null) {
+            handler = handlers.getDefaultCallbackQueryHandler();
+        }
+        return handler;
+    }
 
-        logger.debug("Command handler: {}", optionalCommandHandler);
+    private Optional<BotApiMethod<?>> messageProcess(Update update) {
+        TelegramMessageCommand command = new TelegramMessageCommand(update, getBotUsername());
+        Handlers handlers = this.handlers.get(update.getMessage().getChatId());
+        TelegramHandler commandHandler = findMessageHandler(handlers, command);
 
-        return optionalCommandHandler.flatMap(commandHandler -> handleExceptions(() -> {
-            if (commandHandler.getTelegramCommand().filter(TelegramCommand::isHelp).isPresent()) {
-                sendHelpList(update, userKey);
-                return Optional.empty();
+        return Optional.ofNullable(commandHandler).flatMap(handler -> handleExceptions(() -> {
+            if (handler.getTelegramCommand().filter(TelegramCommand::isHelp).isPresent()) {
+                return Optional.of(makeHelpList(update, handlers));
             }
-            return processHandler(commandHandler, makeMessageArgumentList(
-                commandHandler.getMethod(), command, update
-            ));
+            return processHandler(handler, command, update);
         }, update));
     }
 
+    private static TelegramHandler findMessageHandler(Handlers handlers, TelegramMessageCommand command) {
+        if (command.isForwarded()) {
+            return handlers.getForwardHandlers().get(command.getForwardedFromId());
+        }
+        TelegramHandler commandHandler = null;
+        if (command.isCommand()) {
+            commandHandler = handlers.getCommandMatcher().get(command.getText(), 0, command.getCommandEnd());
+            if (commandHandler == null) {
+                commandHandler = handlers.getPatternCommandMatcher()
+                    .findLongestPrefix(command.getText(), 0, command.getCommandEnd());
+            }
+        }
+        if (commandHandler == null) {
+            commandHandler = handlers.getDefaultMessageHandler();
+        }
+        return commandHandler;
+    }
+
+    /**
+     * Checks whether {@code update} would be processed by {@link TelegramFast} handler,
+     * so it is cheap enough to process on the thread which received it.
+     * Updates without handler are fast too. Updates of kinds with processor replaced by subclass are never fast.
+     */
+    public boolean isFast(Update update) {
+        UpdateKind kind = UpdateKind.of(update);
+        if (kind == null) {
+            return true;
+        }
+        if (customProcessors.contains(kind)) {
+            return false;
+        }
+        TelegramHandler handler;
+        switch (kind) {
+            case MESSAGE:
+                handler = findMessageHandler(
+                    handlers.get(update.getMessage().getChatId()),
+                    new TelegramMessageCommand(update, getBotUsername())
+                );
+                break;
+            case CALLBACK_QUERY:
+                handler = findCallbackQueryHandler(update.getCallbackQuery());
+                break;
+            default:
+                handler = handlers.get(kind.getChatKey(update)).getUpdateHandler(kind);
+        }
+        return handler == null || handler.isFast();
+    }
+
     private static <T> Optional<T> handleExceptions(Callable<Optional<T>> callable, Update update) {
         try {
             return callable.call();
@@ -219,35 +478,86 @@ public abstract class TelegramBotService implements AutoCloseable {
         }
     }
 
-    private Optional<BotApiMethod<?>> processHandler(TelegramHandler commandHandler, Object[] arguments) throws IllegalAccessException, InvocationTargetException {
-        Method method = commandHandler.getMethod();
-        Class<?> methodReturnType = method.getReturnType();
-        logger.debug("Derived method return type: {}", methodReturnType);
-        if (methodReturnType == void.class || methodReturnType == Void.class) {
-            method.invoke(commandHandler.getBean(), arguments);
-        } else if (methodReturnType != null &&
-            BotApiMethod.class.isAssignableFrom(methodReturnType)) {
-            return Optional.ofNullable((BotApiMethod<?>) method.invoke(commandHandler.getBean(), arguments));
-        } else {
-            logger.error("Unsupported handler '{}'", commandHandler);
+    private Optional<BotApiMethod<?>> processHandler(
+        TelegramHandler commandHandler, TelegramMessageCommand telegramMessageCommand, Update update
+    ) throws Exception {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Optional<BotApiMethod<?>> result = invokeHandler(commandHandler, telegramMessageCommand, update);
+            failed = false;
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.recordHandler(commandHandler, nanos, failed);
+            tracer.traceHandler(update, commandHandler, nanos, failed);
         }
-        return Optional.empty();
     }
 
-    private <T> void sendHelpList(Update update, OptionalLong userKey) throws TelegramApiException {
-        getClient().execute(new SendMessage()
+    private Optional<BotApiMethod<?>> invokeHandler(
+        TelegramHandler commandHandler, TelegramMessageCommand telegramMessageCommand, Update update
+    ) throws Exception {
+        switch (commandHandler.getReturnKind()) {
+            case VOID:
+                commandHandler.invoke(telegramMessageCommand, update);
+                return Optional.empty();
+            case BOT_API_METHOD:
+                return Optional.ofNullable(
+                    (BotApiMethod<?>) commandHandler.invoke(telegramMessageCommand, update)
+                );
+            case COMPLETION_STAGE:
+                CompletionStage<?> stage = (CompletionStage<?>) commandHandler.invoke(telegramMessageCommand, update);
+                if (stage == null) {
+                    completeAsync(update, null);
+                    return Optional.empty();
+                }
+                holdUpdate(update);
+                stage.whenComplete((result, e) -> {
+                    try {
+                        if (e != null) {
+                            logger.error("Could not process update: {}", update, e);
+                            completeAsync(update, null);
+                        } else if (result instanceof BotApiMethod) {
+                            completeAsync(update, (BotApiMethod<?>) result);
+                        } else {
+                            if (result != null) {
+                                logger.error("Unsupported result '{}' of handler '{}'", result, commandHandler);
+                            }
+                            completeAsync(update, null);
+                        }
+                    } finally {
+                        releaseUpdate(update);
+                    }
+                });
+                return Optional.empty();
+            default:
+                logger.error("Unsupported handler '{}'", commandHandler);
+                return Optional.empty();
+        }
+    }
+
+    private SendMessage makeHelpList(Update update, Handlers handlers) {
+        return new SendMessage()
             .setChatId(update.getMessage().getChatId())
-            .setText(buildHelpMessage(userKey))
-        );
+            .setText(getHelpMessage(handlers));
+    }
+
+    private String getHelpMessage(Handlers handlers) {
+        String helpMessage = handlers.getHelpMessage();
+        if (helpMessage == null) {
+            helpMessage = buildHelpMessage(handlers);
+            handlers.setHelpMessage(helpMessage);
+        }
+        return helpMessage;
     }
 
-    private String buildHelpMessage(OptionalLong userKey) {
+    private String buildHelpMessage(Handlers handlers) {
         StringBuilder sb = new StringBuilder();
-        String prefixHelpMessage = getOrDefault(userKey).getPrefixHelpMessage();
+        String prefixHelpMessage = handlers.getPrefixHelpMessage();
         if (prefixHelpMessage != null) {
             sb.append(prefixHelpMessage);
         }
-        getCommandList(userKey)
+        getCommandList(handlers)
             .sorted(TELEGRAM_BOT_COMMAND_COMPARATOR)
             .forEach(method -> sb
                 .append(method.getCommand())
@@ -263,14 +573,19 @@ public abstract class TelegramBotService implements AutoCloseable {
      */
     @SuppressWarnings("WeakerAccess")
     public Stream<TelegramBotCommand> getCommandList(OptionalLong userKey) {
+        return getCommandList(getOrDefault(userKey));
+    }
+
+    private Stream<TelegramBotCommand> getCommandList(Handlers handlers) {
+        String patternCommandSuffix = this.patternCommandSuffix;
         return Stream.concat(
-            getOrDefault(userKey).getCommandList().entrySet().stream()
+            handlers.getCommandList().entrySet().stream()
                 .filter(entry -> !entry.getValue().getTelegramCommand().map(TelegramCommand::hidden).orElse(true))
                 .map(entry -> new TelegramBotCommand(
                     entry.getKey(),
                     entry.getValue().getTelegramCommand().map(TelegramCommand::description).orElse("")
                 )),
-            getOrDefault(userKey).getPatternCommandList().entrySet().stream()
+            handlers.getPatternCommandList().entrySet().stream()
                 .filter(entry -> !entry.getValue().getTelegramCommand().map(TelegramCommand::hidden).orElse(true))
                 .map(entry -> new TelegramBotCommand(
                     entry.getKey() + patternCommandSuffix,
@@ -284,18 +599,156 @@ public abstract class TelegramBotService implements AutoCloseable {
      */
     public abstract DefaultAbsSender getClient();
 
-    private Object[] makeMessageArgumentList(Method method, TelegramMessageCommand telegramMessageCommand, Update update) {
-        return Arrays.stream(method.getGenericParameterTypes())
-            .map(type -> messageArgumentMapper.getOrDefault(type, (t, u) -> null))
-            .map(mapper -> mapper.apply(telegramMessageCommand, update))
-            .toArray();
+    /**
+     * @return username of the bot, used to recognize commands like {@code /start@BotName}.
+     * If {@code null}, commands addressed to any bot are accepted.
+     */
+    public String getBotUsername() {
+        return null;
+    }
+
+    /**
+     * Name of the bot, which selects its controllers, see {@link TelegramBotBuilder#name(String)}.
+     */
+    public String getBotName() {
+        return botName;
+    }
+
+    private void completeAsync(Update update, BotApiMethod<?> result) {
+        BotApiMethod<?> method = callbackQueryAnswerer != null && update.hasCallbackQuery()
+            ? callbackQueryAnswerer.complete(update, result)
+            : result;
+        if (method != null) {
+            sendResult(update, method);
+        }
+    }
+
+    private void sendResult(Update update, BotApiMethod<?> method) {
+        holdUpdate(update);
+        sendAsync(update, method, () -> releaseUpdate(update));
+    }
+
+    /**
+     * Applies processing options of {@code botBuilder}. Should be called only from constructor of subclass.
+     */
+    protected final void applyOptions(TelegramBotBuilder botBuilder) {
+        botName = botBuilder.getName() != null ? botBuilder.getName() : botBuilder.getUsername();
+        metrics = botBuilder.getMetrics();
+        tracer = UpdateTracer.of(botBuilder);
+        setCallbackQueryAnswerDeadline(botBuilder.getCallbackQueryAnswerDeadline());
+        if (updateIdFilter != null) {
+            updateIdFilter.close();
+        }
+        updateIdFilter = botBuilder.getUpdateIdWindow() > 0
+            ? new UpdateIdFilter(botBuilder.getUpdateIdWindow(), botBuilder.getUpdateIdWatermarkStore())
+            : null;
+    }
+
+    /**
+     * Enables automatic answering of callback queries, see {@link CallbackQueryAnswerer}.
+     * Answers are sent with {@link #sendAsync(Update, BotApiMethod, Runnable)}.
+     * Should be called only from constructor of subclass.
+     *
+     * @param deadline how long handler may answer callback query itself, {@code null} disables automatic answering
+     */
+    protected final void setCallbackQueryAnswerDeadline(Duration deadline) {
+        if (callbackQueryAnswerer != null) {
+            callbackQueryAnswerer.close();
+        }
+        callbackQueryAnswerer = deadline == null ? null : new CallbackQueryAnswerer(deadline, this::sendResult);
+    }
+
+    /**
+     * Sends result of asynchronous handler, which completed after dispatching of {@code update} was finished.
+     *
+     * @param done should be run when {@code method} is sent or could not be sent
+     */
+    protected void sendAsync(Update update, BotApiMethod<?> method, Runnable done) {
+        executeAsync(update, method, done);
+    }
+
+    private <T extends Serializable> void executeAsync(Update update, BotApiMethod<T> method, Runnable done) {
+        long start = System.nanoTime();
+        try {
+            getClient().executeAsync(method, new SentCallback<T>() {
+                @Override
+                public void onResult(BotApiMethod<T> method, T response) {
+                    long nanos = System.nanoTime() - start;
+                    metrics.recordSend(nanos, false);
+                    tracer.traceSent(update, method, nanos, false);
+                    done.run();
+                }
+
+                @Override
+                public void onError(BotApiMethod<T> method, TelegramApiRequestException apiException) {
+                    long nanos = System.nanoTime() - start;
+                    metrics.recordSend(nanos, true);
+                    tracer.traceSent(update, method, nanos, true);
+                    logger.error("Update: {}. Can not send message {} to telegram: ", update, method, apiException);
+                    done.run();
+                }
+
+                @Override
+                public void onException(BotApiMethod<T> method, Exception exception) {
+                    long nanos = System.nanoTime() - start;
+                    metrics.recordSend(nanos, true);
+                    tracer.traceSent(update, method, nanos, true);
+                    logger.error("Update: {}. Can not send message {} to telegram: ", update, method, exception);
+                    done.run();
+                }
+            });
+        } catch (TelegramApiException e) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordSend(nanos, true);
+            tracer.traceSent(update, method, nanos, true);
+            logger.error("Update: {}. Can not send message {} to telegram: ", update, method, e);
+            done.run();
+        }
     }
 
-    private Object[] makeCallbackQueryArgumentList(Method method, Update update) {
-        return Arrays.stream(method.getGenericParameterTypes())
-            .map(type -> callbackQueryArgumentMapper.getOrDefault(type, u -> null))
-            .map(mapper -> mapper.apply(update))
-            .toArray();
+    private TelegramHandler makeMessageHandler(Object bean, Method method, TelegramCommand telegramCommand) {
+        return new TelegramHandler(bean, method, telegramCommand,
+            makeArgumentResolvers(method, messageArgumentMapper, Function.identity())
+        );
+    }
+
+    private TelegramHandler makeCallbackQueryHandler(Object bean, Method method) {
+        Map<Type, Function<Update, ?>> argumentMapper = new HashMap<>(callbackQueryArgumentMapper);
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (CallbackDataCodec.isCallbackData(parameterType)) {
+                CallbackDataCodec<?> codec = CallbackDataCodec.of(parameterType);
+                argumentMapper.put(parameterType, update -> codec.decode(update.getCallbackQuery().getData()));
+            }
+        }
+        return new TelegramHandler(bean, method, null,
+            makeArgumentResolvers(method, argumentMapper,
+                mapper -> (telegramMessageCommand, update) -> mapper.apply(update)
+            )
+        );
+    }
+
+    private TelegramHandler makeUpdateHandler(Object bean, Method method, UpdateKind kind) {
+        return new TelegramHandler(bean, method, null,
+            makeArgumentResolvers(method, updateArgumentMappers.get(kind),
+                mapper -> (telegramMessageCommand, update) -> mapper.apply(update)
+            )
+        );
+    }
+
+    private static <T> List<BiFunction<TelegramMessageCommand, Update, ?>> makeArgumentResolvers(
+        Method method, Map<Type, T> argumentMapper,
+        Function<? super T, ? extends BiFunction<TelegramMessageCommand, Update, ?>> resolverFactory
+    ) {
+        Type[] parameterTypes = method.getGenericParameterTypes();
+        List<BiFunction<TelegramMessageCommand, Update, ?>> resolvers = new ArrayList<>(parameterTypes.length);
+        for (Type type : parameterTypes) {
+            T mapper = argumentMapper.get(type);
+            if (mapper == null) {
+                throw new IllegalArgumentException("Unsupported parameter type " + type + " in " + method);
+            }
+            resolvers.add(resolverFactory.apply(mapper));
+        }
+        return resolvers;
     }
 
     /**
@@ -306,12 +759,14 @@ public abstract class TelegramBotService implements AutoCloseable {
         TelegramCommand command = AnnotatedElementUtils.findMergedAnnotation(method, TelegramCommand.class);
         if (command != null) {
             for (String cmd : command.commands()) {
-                TelegramHandler telegramHandler = new TelegramHandler(bean, method, command);
+                TelegramHandler telegramHandler = makeMessageHandler(bean, method, command);
+                String patternCommandSuffix = this.patternCommandSuffix;
                 if (cmd.endsWith(patternCommandSuffix)) {
-                    createOrGet(userId).getPatternCommandList()
-                        .put(cmd.substring(0, cmd.length() - patternCommandSuffix.length()), telegramHandler);
+                    modifyHandlers(userId, handlers -> handlers.putPatternCommand(
+                        cmd.substring(0, cmd.length() - patternCommandSuffix.length()), telegramHandler
+                    ));
                 } else {
-                    createOrGet(userId).getCommandList().put(cmd, telegramHandler);
+                    modifyHandlers(userId, handlers -> handlers.putCommand(cmd, telegramHandler));
                 }
             }
         }
@@ -322,15 +777,84 @@ public abstract class TelegramBotService implements AutoCloseable {
      */
     @SuppressWarnings("WeakerAccess")
     public void addDefaultMessageHandler(Object bean, Method method, OptionalLong userId) {
-        createOrGet(userId).setDefaultMessageHandler(new TelegramHandler(bean, method, null));
+        TelegramHandler telegramHandler = makeMessageHandler(bean, method, null);
+        modifyHandlers(userId, handlers -> handlers.setDefaultMessageHandler(telegramHandler));
+    }
+
+    /**
+     * Add {@link TelegramCallbackQuery} handler for its data.
+     * If data is not specified, handler with {@link TelegramCallbackData} parameter processes data of that class.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void addCallbackQueryHandler(Object bean, Method method, OptionalLong userId) {
+        TelegramCallbackQuery callbackQuery =
+            AnnotatedElementUtils.findMergedAnnotation(method, TelegramCallbackQuery.class);
+        if (callbackQuery != null) {
+            String[] dataArr = callbackQuery.data();
+            if (dataArr.length == 0) {
+                dataArr = Arrays.stream(method.getParameterTypes())
+                    .filter(CallbackDataCodec::isCallbackData)
+                    .map(parameterType -> CallbackDataCodec.of(parameterType).getPrefix() + patternCommandSuffix)
+                    .toArray(String[]::new);
+            }
+            if (dataArr.length == 0) {
+                addDefaultCallbackQueryHandler(bean, method, userId);
+                return;
+            }
+            for (String data : dataArr) {
+                TelegramHandler telegramHandler = makeCallbackQueryHandler(bean, method);
+                String patternCommandSuffix = this.patternCommandSuffix;
+                if (data.endsWith(patternCommandSuffix)) {
+                    modifyHandlers(userId, handlers -> handlers.putPatternCallbackQuery(
+                        data.substring(0, data.length() - patternCommandSuffix.length()), telegramHandler
+                    ));
+                } else {
+                    modifyHandlers(userId, handlers -> handlers.putCallbackQuery(data, telegramHandler));
+                }
+            }
+        }
     }
 
     /**
-     * Add {@link TelegramCallbackQuery} handler.
+     * Add {@link TelegramCallbackQuery} handler for callback queries not matched by other handlers.
      */
     @SuppressWarnings("WeakerAccess")
     public void addDefaultCallbackQueryHandler(Object bean, Method method, OptionalLong userId) {
-        createOrGet(userId).setDefaultCallbackQueryHandler(new TelegramHandler(bean, method, null));
+        TelegramHandler telegramHandler = makeCallbackQueryHandler(bean, method);
+        modifyHandlers(userId, handlers -> handlers.setDefaultCallbackQueryHandler(telegramHandler));
+    }
+
+    /**
+     * Add handler of updates of {@code kind}, e.g. {@link TelegramEditedMessage} handler.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void addUpdateHandler(Object bean, Method method, UpdateKind kind, OptionalLong userId) {
+        TelegramHandler telegramHandler = makeUpdateHandler(bean, method, kind);
+        modifyHandlers(userId, handlers -> handlers.putUpdateHandler(kind, telegramHandler));
+    }
+
+    /**
+     * Add {@link TelegramInlineQuery} handler.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void addInlineQueryHandler(Object bean, Method method, OptionalLong userId) {
+        TelegramInlineQuery inlineQuery = AnnotatedElementUtils.findMergedAnnotation(method, TelegramInlineQuery.class);
+        if (inlineQuery != null) {
+            TelegramHandler telegramHandler = makeUpdateHandler(bean, method, UpdateKind.INLINE_QUERY);
+            long cacheSize = Long.parseLong(resolveValue(inlineQuery.cacheSize()));
+            InlineQueryCache cache = cacheSize == 0
+                ? null
+                : new InlineQueryCache(cacheSize, Duration.parse(resolveValue(inlineQuery.cacheTtl())));
+            modifyHandlers(userId, handlers -> handlers.setInlineQueryHandler(telegramHandler, cache));
+        }
+    }
+
+    private String resolveValue(String value) {
+        String resolvedValue = embeddedValueResolver.resolveStringValue(value);
+        if (resolvedValue == null) {
+            throw new RuntimeException("NPE in " + value);
+        }
+        return resolvedValue;
     }
 
     /**
@@ -342,7 +866,8 @@ public abstract class TelegramBotService implements AutoCloseable {
         if (forward != null) {
             String[] fromArr = forward.from();
             if (fromArr.length == 0) {
-                createOrGet(userId).setDefaultForwardHandler(new TelegramHandler(bean, method, null));
+                TelegramHandler telegramHandler = makeMessageHandler(bean, method, null);
+                modifyHandlers(userId, handlers -> handlers.setDefaultForwardHandler(telegramHandler));
             } else {
                 for (String from : fromArr) {
                     String parsedFromStr = embeddedValueResolver.resolveStringValue(from);
@@ -351,8 +876,8 @@ public abstract class TelegramBotService implements AutoCloseable {
                     }
                     for (String fromValue : parsedFromStr.split(",")) {
                         Long parsedFrom = Long.valueOf(fromValue);
-                        createOrGet(userId).getForwardHandlerList()
-                            .put(parsedFrom, new TelegramHandler(bean, method, null));
+                        TelegramHandler telegramHandler = makeMessageHandler(bean, method, null);
+                        modifyHandlers(userId, handlers -> handlers.putForwardHandler(parsedFrom, telegramHandler));
                     }
                 }
             }
@@ -364,17 +889,22 @@ public abstract class TelegramBotService implements AutoCloseable {
      */
     @SuppressWarnings("WeakerAccess")
     public void addHelpMethod(OptionalLong userKey) {
-        try {
-            Method helpMethod = getClass().getMethod("helpMethod");
-            TelegramCommand command = AnnotatedElementUtils.findMergedAnnotation(helpMethod, TelegramCommand.class);
-            if (command != null) {
-                for (String cmd : command.commands()) {
-                    createOrGet(userKey).getCommandList()
-                        .put(cmd, new TelegramHandler(this, helpMethod, command));
+        synchronized (registryLock) {
+            if (!helpMethodKeys.add(userKey)) {
+                return;
+            }
+            try {
+                Method helpMethod = getClass().getMethod("helpMethod");
+                TelegramCommand command = AnnotatedElementUtils.findMergedAnnotation(helpMethod, TelegramCommand.class);
+                if (command != null) {
+                    for (String cmd : command.commands()) {
+                        TelegramHandler telegramHandler = makeMessageHandler(this, helpMethod, command);
+                        modifyHandlers(userKey, handlers -> handlers.putCommand(cmd, telegramHandler));
+                    }
                 }
+            } catch (Exception e) {
+                logger.error("Could not add help method", e);
             }
-        } catch (Exception e) {
-            logger.error("Could not add help method", e);
         }
     }
 
@@ -382,6 +912,7 @@ public abstract class TelegramBotService implements AutoCloseable {
      * Default help method.
      */
     @SuppressWarnings("WeakerAccess")
+    @TelegramFast
     @TelegramCommand(
         commands = "/help",
         isHelp = true,
@@ -392,6 +923,12 @@ public abstract class TelegramBotService implements AutoCloseable {
 
     @Override
     public void close() {
+        if (callbackQueryAnswerer != null) {
+            callbackQueryAnswerer.close();
+        }
+        if (updateIdFilter != null) {
+            updateIdFilter.close();
+        }
     }
 
     /**
@@ -400,31 +937,166 @@ public abstract class TelegramBotService implements AutoCloseable {
     @SuppressWarnings("WeakerAccess")
     public void addHelpPrefixMethod(Object bean, Method method, OptionalLong userId) {
         try {
-            createOrGet(userId).setPrefixHelpMessage(method.invoke(bean).toString());
+            String prefixHelpMessage = method.invoke(bean).toString();
+            modifyHandlers(userId, handlers -> handlers.setPrefixHelpMessage(prefixHelpMessage));
         } catch (Exception e) {
             logger.error("Can not get help prefix", e);
         }
     }
 
+    /**
+     * Removes all handlers of {@code bean}.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void removeHandlers(Object bean) {
+        synchronized (registryLock) {
+            handlerBuilders.values().forEach(handlers -> handlers.removeBean(bean));
+            handlersChanged();
+        }
+    }
+
+    /**
+     * Runs {@code registration}, publishing all handler changes it makes at once.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void modifyHandlers(Runnable registration) {
+        synchronized (registryLock) {
+            batchDepth++;
+            try {
+                registration.run();
+            } finally {
+                batchDepth--;
+                if (changed) {
+                    handlersChanged();
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes handlers registered during context startup visible to dispatcher, then registers bot in telegram,
+     * so no update comes before its handlers are known.
+     * Handlers added or removed after this call are published immediately.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        boolean firstCall;
+        synchronized (registryLock) {
+            addHelpMethod(OptionalLong.empty());
+            firstCall = !published;
+            published = true;
+            publishHandlers();
+        }
+        if (firstCall) {
+            registerBot();
+        }
+    }
+
+    /**
+     * Registers client in telegram, so updates start coming. Called once, after handlers are published.
+     */
+    protected void registerBot() {
+    }
+
     private Handlers getOrDefault(OptionalLong key) {
-        if (!handlers.containsKey(key)) {
-            return handlers.get(OptionalLong.empty());
+        return key.isPresent() ? handlers.get(key.getAsLong()) : handlers.getDefaultHandlers();
+    }
+
+    private void modifyHandlers(OptionalLong key, Consumer<Handlers.Builder> modification) {
+        synchronized (registryLock) {
+            modification.accept(handlerBuilders.computeIfAbsent(key, k -> new Handlers.Builder()));
+            handlersChanged();
         }
-        return handlers.get(key);
     }
 
-    private Handlers createOrGet(OptionalLong key) {
-        return handlers.computeIfAbsent(key, k -> new Handlers());
+    /**
+     * Publishes changes unless startup or {@link #modifyHandlers(Runnable) batch} is in progress.
+     * Should be called with {@link #registryLock} held.
+     */
+    private void handlersChanged() {
+        changed = true;
+        if (published && batchDepth == 0) {
+            publishHandlers();
+        }
     }
 
+    /**
+     * Should be called with {@link #registryLock} held.
+     */
+    private void publishHandlers() {
+        changed = false;
+        Map<Long, Handlers> userHandlers = new HashMap<>();
+        handlerBuilders.forEach((key, handlers) -> {
+            if (key.isPresent()) {
+                userHandlers.put(key.getAsLong(), handlers.build());
+            }
+        });
+        Handlers.Builder defaultHandlers = handlerBuilders.get(OptionalLong.empty());
+        handlers = new HandlerRegistry(ImmutableLongMap.copyOf(
+            userHandlers, defaultHandlers == null ? Handlers.EMPTY : defaultHandlers.build()
+        ));
+    }
+
+    /**
+     * Immutable snapshot of all handler sets, which is replaced as a whole on every change.
+     */
+    private static class HandlerRegistry {
+        private static final HandlerRegistry EMPTY = new HandlerRegistry(
+            ImmutableLongMap.copyOf(ImmutableMap.of(), Handlers.EMPTY)
+        );
+
+        private final ImmutableLongMap<Handlers> handlers;
+
+        private HandlerRegistry(ImmutableLongMap<Handlers> handlers) {
+            this.handlers = handlers;
+        }
+
+        /**
+         * @return handlers of {@code userKey} or default handlers if user has no own handlers
+         */
+        private Handlers get(long userKey) {
+            return handlers.get(userKey);
+        }
+
+        private Handlers getDefaultHandlers() {
+            return handlers.getDefaultValue();
+        }
+    }
+
+    /**
+     * Immutable handler set of one user key.
+     */
     private static class Handlers {
-        private final Map<String, TelegramHandler> commandList = new HashMap<>();
-        private final Map<String, TelegramHandler> patternCommandList = new HashMap<>();
-        private final Map<Long, TelegramHandler> forwardHandlerList = new HashMap<>();
-        private TelegramHandler defaultMessageHandler;
-        private TelegramHandler defaultForwardHandler;
-        private TelegramHandler defaultCallbackQueryHandler;
-        private String prefixHelpMessage;
+        private static final Handlers EMPTY = new Builder().build();
+
+        private final Map<String, TelegramHandler> commandList;
+        private final Map<String, TelegramHandler> patternCommandList;
+        private final PrefixMatcher<TelegramHandler> commandMatcher = new PrefixMatcher<>();
+        private final PrefixMatcher<TelegramHandler> patternCommandMatcher = new PrefixMatcher<>();
+        private final ImmutableLongMap<TelegramHandler> forwardHandlers;
+        private final TelegramHandler defaultMessageHandler;
+        private final Map<String, TelegramHandler> callbackQueryList;
+        private final PrefixMatcher<TelegramHandler> patternCallbackQueryMatcher = new PrefixMatcher<>();
+        private final TelegramHandler defaultCallbackQueryHandler;
+        private final Map<UpdateKind, TelegramHandler> updateHandlers;
+        private final InlineQueryCache inlineQueryCache;
+        private final String prefixHelpMessage;
+        private volatile String helpMessage;
+
+        private Handlers(Builder builder) {
+            commandList = ImmutableMap.copyOf(builder.commandList);
+            commandList.forEach(commandMatcher::put);
+            patternCommandList = ImmutableMap.copyOf(builder.patternCommandList);
+            patternCommandList.forEach(patternCommandMatcher::put);
+            forwardHandlers = ImmutableLongMap.copyOf(builder.forwardHandlerList, builder.defaultForwardHandler);
+            defaultMessageHandler = builder.defaultMessageHandler;
+            callbackQueryList = ImmutableMap.copyOf(builder.callbackQueryList);
+            builder.patternCallbackQueryList.forEach(patternCallbackQueryMatcher::put);
+            defaultCallbackQueryHandler = builder.defaultCallbackQueryHandler;
+            updateHandlers = Maps.immutableEnumMap(builder.updateHandlers);
+            inlineQueryCache = builder.inlineQueryCache;
+            prefixHelpMessage = builder.prefixHelpMessage;
+        }
 
         private Map<String, TelegramHandler> getCommandList() {
             return commandList;
@@ -434,60 +1106,150 @@ public abstract class TelegramBotService implements AutoCloseable {
             return patternCommandList;
         }
 
-        private Map<Long, TelegramHandler> getForwardHandlerList() {
-            return forwardHandlerList;
+        /**
+         * Same content as {@link #getCommandList()}, for exact lookup of a command inside message text.
+         */
+        private PrefixMatcher<TelegramHandler> getCommandMatcher() {
+            return commandMatcher;
+        }
+
+        private PrefixMatcher<TelegramHandler> getPatternCommandMatcher() {
+            return patternCommandMatcher;
+        }
+
+        /**
+         * Forward handlers by user id, with default forward handler for other users.
+         */
+        private ImmutableLongMap<TelegramHandler> getForwardHandlers() {
+            return forwardHandlers;
         }
 
         private TelegramHandler getDefaultMessageHandler() {
             return defaultMessageHandler;
         }
 
-        private void setDefaultMessageHandler(TelegramHandler defaultMessageHandler) {
-            this.defaultMessageHandler = defaultMessageHandler;
+        private Map<String, TelegramHandler> getCallbackQueryList() {
+            return callbackQueryList;
         }
 
-        private TelegramHandler getDefaultCallbackQueryHandler() {
-            return defaultCallbackQueryHandler;
+        private PrefixMatcher<TelegramHandler> getPatternCallbackQueryMatcher() {
+            return patternCallbackQueryMatcher;
         }
 
-        private void setDefaultCallbackQueryHandler(TelegramHandler defaultCallbackQueryHandler) {
-            this.defaultCallbackQueryHandler = defaultCallbackQueryHandler;
+        private TelegramHandler getDefaultCallbackQueryHandler() {
+            return defaultCallbackQueryHandler;
         }
 
-        private TelegramHandler getDefaultForwardHandler() {
-            return defaultForwardHandler;
+        /**
+         * Handler of updates of {@code kind} which have no dedicated processing, {@code null} if none.
+         */
+        private TelegramHandler getUpdateHandler(UpdateKind kind) {
+            return updateHandlers.get(kind);
         }
 
-        private void setDefaultForwardHandler(TelegramHandler defaultForwardHandler) {
-            this.defaultForwardHandler = defaultForwardHandler;
+        /**
+         * Cache of inline query handler answers, {@code null} if caching is disabled.
+         */
+        private InlineQueryCache getInlineQueryCache() {
+            return inlineQueryCache;
         }
 
         private String getPrefixHelpMessage() {
             return prefixHelpMessage;
         }
 
-        private void setPrefixHelpMessage(String prefixHelpMessage) {
-            this.prefixHelpMessage = prefixHelpMessage;
+        /**
+         * Rendered help message, {@code null} if it is not built yet.
+         */
+        private String getHelpMessage() {
+            return helpMessage;
         }
-    }
-
-    private static class ProcessorDescriptor implements Predicate<Update>, Function<Update, Optional<BotApiMethod<?>>> {
-        private final Predicate<Update> predicate;
-        private final Function<Update, Optional<BotApiMethod<?>>> function;
 
-        private ProcessorDescriptor(Predicate<Update> predicate, Function<Update, Optional<BotApiMethod<?>>> function) {
-            this.predicate = predicate;
-            this.function = function;
+        private void setHelpMessage(String helpMessage) {
+            this.helpMessage = helpMessage;
         }
 
-        @Override
-        public Optional<BotApiMethod<?>> apply(Update update) {
-            return function.apply(update);
-        }
+        private static class Builder {
+            private final Map<String, TelegramHandler> commandList = new HashMap<>();
+            private final Map<String, TelegramHandler> patternCommandList = new HashMap<>();
+            private final Map<Long, TelegramHandler> forwardHandlerList = new HashMap<>();
+            private final Map<String, TelegramHandler> callbackQueryList = new HashMap<>();
+            private final Map<String, TelegramHandler> patternCallbackQueryList = new HashMap<>();
+            private TelegramHandler defaultMessageHandler;
+            private TelegramHandler defaultForwardHandler;
+            private TelegramHandler defaultCallbackQueryHandler;
+            private final Map<UpdateKind, TelegramHandler> updateHandlers = new EnumMap<>(UpdateKind.class);
+            private InlineQueryCache inlineQueryCache;
+            private String prefixHelpMessage;
+
+            private void putCommand(String command, TelegramHandler telegramHandler) {
+                commandList.put(command, telegramHandler);
+            }
+
+            private void putPatternCommand(String prefix, TelegramHandler telegramHandler) {
+                patternCommandList.put(prefix, telegramHandler);
+            }
+
+            private void putCallbackQuery(String data, TelegramHandler telegramHandler) {
+                callbackQueryList.put(data, telegramHandler);
+            }
+
+            private void putPatternCallbackQuery(String prefix, TelegramHandler telegramHandler) {
+                patternCallbackQueryList.put(prefix, telegramHandler);
+            }
+
+            private void putForwardHandler(Long from, TelegramHandler telegramHandler) {
+                forwardHandlerList.put(from, telegramHandler);
+            }
 
-        @Override
-        public boolean test(Update update) {
-            return predicate.test(update);
+            private void setDefaultMessageHandler(TelegramHandler defaultMessageHandler) {
+                this.defaultMessageHandler = defaultMessageHandler;
+            }
+
+            private void setDefaultCallbackQueryHandler(TelegramHandler defaultCallbackQueryHandler) {
+                this.defaultCallbackQueryHandler = defaultCallbackQueryHandler;
+            }
+
+            private void setDefaultForwardHandler(TelegramHandler defaultForwardHandler) {
+                this.defaultForwardHandler = defaultForwardHandler;
+            }
+
+            private void putUpdateHandler(UpdateKind kind, TelegramHandler telegramHandler) {
+                updateHandlers.put(kind, telegramHandler);
+            }
+
+            private void setInlineQueryHandler(TelegramHandler telegramHandler, InlineQueryCache inlineQueryCache) {
+                updateHandlers.put(UpdateKind.INLINE_QUERY, telegramHandler);
+                this.inlineQueryCache = inlineQueryCache;
+            }
+
+            private void setPrefixHelpMessage(String prefixHelpMessage) {
+                this.prefixHelpMessage = prefixHelpMessage;
+            }
+
+            private void removeBean(Object bean) {
+                Predicate<TelegramHandler> ofBean = telegramHandler -> telegramHandler.getBean() == bean;
+                commandList.values().removeIf(ofBean);
+                patternCommandList.values().removeIf(ofBean);
+                forwardHandlerList.values().removeIf(ofBean);
+                callbackQueryList.values().removeIf(ofBean);
+                patternCallbackQueryList.values().removeIf(ofBean);
+                updateHandlers.values().removeIf(ofBean);
+                if (!updateHandlers.containsKey(UpdateKind.INLINE_QUERY)) {
+                    inlineQueryCache = null;
+                }
+                defaultMessageHandler = removeIf(defaultMessageHandler, ofBean);
+                defaultForwardHandler = removeIf(defaultForwardHandler, ofBean);
+                defaultCallbackQueryHandler = removeIf(defaultCallbackQueryHandler, ofBean);
+            }
+
+            private static TelegramHandler removeIf(TelegramHandler telegramHandler, Predicate<TelegramHandler> filter) {
+                return telegramHandler != null && filter.test(telegramHandler) ? null : telegramHandler;
+            }
+
+            private Handlers build() {
+                return new Handlers(this);
+            }
         }
     }
 }
@@ -0,0 +1,159 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+import name.maratik.spring.telegram.config.TelegramBotMetrics;
+import name.maratik.spring.telegram.model.UpdateKind;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Processes updates on bot executor, keeping updates of one chat in order, and sends results to telegram.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class UpdateDispatcher implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UpdateDispatcher.class);
+    private static final Runnable NOOP = () -> { };
+
+    private final DefaultAbsSender client;
+    private final UpdateExecutor executor;
+    private final boolean ownExecutor;
+    private final OutboundSender outboundSender;
+    private final TelegramBotMetrics metrics;
+    private final UpdateTracer tracer;
+
+    /**
+     * @param botBuilder executor and sending options, executor options are ignored if
+     *                   {@link TelegramBotBuilder#updateExecutor(UpdateExecutor) shared executor} is set
+     * @param client     client to send results with
+     */
+    public UpdateDispatcher(TelegramBotBuilder botBuilder, DefaultAbsSender client) {
+        this.client = client;
+        metrics = botBuilder.getMetrics();
+        tracer = UpdateTracer.of(botBuilder);
+        if (botBuilder.getUpdateExecutor() != null) {
+            executor = botBuilder.getUpdateExecutor();
+            ownExecutor = false;
+        } else {
+            executor = new UpdateExecutor(botBuilder.getExecutor(), botBuilder.isVirtualThreads(),
+                botBuilder.getMaxThreads(), botBuilder.getQueueCapacity(), botBuilder.getOverflowPolicy(), metrics
+            );
+            ownExecutor = true;
+        }
+        outboundSender = botBuilder.isRateLimitedSend()
+            ? new OutboundSender(client, botBuilder.getGlobalSendRate(), botBuilder.getChatSendRate(),
+                botBuilder.getSendThreads(), metrics
+            )
+            : null;
+    }
+
+    /**
+     * Schedules {@code update} to be processed by {@code processor}, result of processing is sent to telegram.
+     */
+    public void dispatch(Update update, Function<Update, Optional<BotApiMethod<?>>> processor) {
+        dispatch(update, processor, NOOP);
+    }
+
+    /**
+     * Schedules {@code update} to be processed by {@code processor}, result of processing is sent to telegram.
+     *
+     * @param done run when processing finishes and its result, if any, is sent or could not be sent.
+     *             It is not run if update is dropped because of queue overflow
+     */
+    public void dispatch(Update update, Function<Update, Optional<BotApiMethod<?>>> processor, Runnable done) {
+        long queuedAt = System.nanoTime();
+        executor.execute(chatKey(update), () -> {
+            metrics.recordQueueWait(System.nanoTime() - queuedAt);
+            process(update, processor, done);
+        });
+    }
+
+    private void process(Update update, Function<Update, Optional<BotApiMethod<?>>> processor, Runnable done) {
+        BotApiMethod<?> result = null;
+        try {
+            result = processor.apply(update).orElse(null);
+        } finally {
+            if (result == null) {
+                done.run();
+            }
+        }
+        if (result == null || enqueue(update, result, done)) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            client.execute(result);
+            failed = false;
+        } catch (TelegramApiException e) {
+            logger.error("Update: {}. Can not send message {} to telegram: ", update, result, e);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.recordSend(nanos, failed);
+            tracer.traceSent(update, result, nanos, failed);
+            done.run();
+        }
+    }
+
+    /**
+     * Queues {@code method} to rate limited sender, if {@link TelegramBotBuilder#rateLimitedSend(boolean)} is on.
+     *
+     * @param done run when {@code method} is sent or could not be sent
+     * @return {@code false} if rate limited sending is off, so {@code method} should be sent by caller
+     */
+    public boolean enqueue(Update update, BotApiMethod<?> method, Runnable done) {
+        if (outboundSender == null) {
+            return false;
+        }
+        // callback query answers are not subject to per chat limit
+        long chatKey = method instanceof AnswerCallbackQuery ? OutboundSender.NO_CHAT : chatKey(update);
+        outboundSender.send(chatKey, method, done);
+        return true;
+    }
+
+    /**
+     * @return number of updates dropped because of queue overflow, of all bots if executor is shared
+     */
+    public long getDroppedUpdates() {
+        return executor.getDroppedUpdates();
+    }
+
+    /**
+     * @return rate limited sender, if {@link TelegramBotBuilder#rateLimitedSend(boolean)} is on
+     */
+    public Optional<OutboundSender> getOutboundSender() {
+        return Optional.ofNullable(outboundSender);
+    }
+
+    /**
+     * Updates of one chat are processed in order. For queries user id is used as chat key.
+     *
+     * @return chat key of update or {@link OutboundSender#NO_CHAT} if update has no ordering requirements
+     */
+    private static long chatKey(Update update) {
+        UpdateKind kind = UpdateKind.of(update);
+        return kind == null ? OutboundSender.NO_CHAT : kind.getChatKey(update);
+    }
+
+    /**
+     * Waits for updates being processed, unless executor is shared, then sends queued results.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.close();
+        }
+        if (outboundSender != null) {
+            outboundSender.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.config.OverflowPolicy;
+import name.maratik.spring.telegram.config.TelegramBotMetrics;
+import name.maratik.spring.telegram.util.KeyedSerialExecutor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded executor of update processing, which keeps updates with the same chat key in order.
+ * May be shared by several bots.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class UpdateExecutor implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UpdateExecutor.class);
+
+    private final Executor executor;
+    private final boolean ownExecutor;
+    private final KeyedSerialExecutor dispatcher;
+
+    /**
+     * @param executor       executor provided by user, {@code null} to create own executor
+     * @param virtualThreads create virtual thread per task executor, if supported by runtime
+     * @param maxThreads     number of threads of own executor, if virtual threads are not used
+     * @param queueCapacity  maximum number of pending updates, {@code 0} means unbounded
+     * @param overflowPolicy what to do with update when there are already {@code queueCapacity} pending updates
+     * @param metrics        receives rejected updates
+     */
+    public UpdateExecutor(
+        Executor executor, boolean virtualThreads, int maxThreads, int queueCapacity, OverflowPolicy overflowPolicy,
+        TelegramBotMetrics metrics
+    ) {
+        if (executor != null) {
+            this.executor = executor;
+            ownExecutor = false;
+        } else {
+            this.executor = virtualThreads
+                ? newVirtualThreadPerTaskExecutor().orElseGet(() -> {
+                    logger.warn("Virtual threads are not supported by runtime, falling back to thread pool");
+                    return newThreadPool(maxThreads);
+                })
+                : newThreadPool(maxThreads);
+            ownExecutor = true;
+        }
+        dispatcher = new KeyedSerialExecutor(this.executor, queueCapacity, overflowPolicy, metrics::recordRejected);
+    }
+
+    /**
+     * Schedules {@code task} after previously scheduled tasks of {@code chatKey}.
+     *
+     * @param chatKey chat key or {@link OutboundSender#NO_CHAT} if task has no ordering requirements
+     */
+    public void execute(long chatKey, Runnable task) {
+        if (chatKey == OutboundSender.NO_CHAT) {
+            dispatcher.execute(task);
+        } else {
+            dispatcher.execute(chatKey, task);
+        }
+    }
+
+    /**
+     * @return number of updates dropped because of queue overflow
+     */
+    public long getDroppedUpdates() {
+        return dispatcher.getDroppedTasks();
+    }
+
+    /**
+     * Waits up to 5 seconds for updates being processed and stops own executor.
+     */
+    @Override
+    public void close() {
+        if (!ownExecutor) {
+            logger.info("Bot executor is provided by user and is left running");
+            return;
+        }
+        ExecutorService executorService = (ExecutorService) executor;
+        executorService.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = executorService.awaitTermination(5, TimeUnit.SECONDS);
+            if (!terminated) {
+                logger.error("Bot executor did not terminated in 5 seconds");
+            }
+        } catch (InterruptedException e) {
+            logger.error("Bot executor service termination awaiting failed", e);
+        }
+
+        if (!terminated) {
+            int droppedTasks = executorService.shutdownNow().size();
+            logger.error("Executor was abruptly shut down. {} tasks will not be executed", droppedTasks);
+        }
+    }
+
+    private static ExecutorService newThreadPool(int maxThreads) {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+            maxThreads, maxThreads,
+            1L, TimeUnit.HOURS,
+            new LinkedBlockingQueue<>()
+        );
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which is available since Java 21.
+     */
+    private static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            return Optional.of((ExecutorService) MethodHandles.publicLookup().findStatic(
+                Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class)
+            ).invoke());
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return Optional.empty();
+        } catch (Throwable e) {
+            logger.error("Can not create virtual thread executor", e);
+            return Optional.empty();
+        }
+    }
+}
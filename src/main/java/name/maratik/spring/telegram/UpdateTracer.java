@@ -0,0 +1,132 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+import name.maratik.spring.telegram.model.TelegramHandler;
+import name.maratik.spring.telegram.model.UpdateKind;
+import name.maratik.spring.telegram.util.ImmutableLongMap;
+
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Logs compact fields of sampled updates and updates of selected chats at {@code INFO} level, instead of whole
+ * objects. An update is either traced at every point or not traced at all, as sampling depends on update id only.
+ * <p>
+ * When tracing is off, every trace point costs a single field check.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class UpdateTracer {
+    private static final Logger logger = LogManager.getLogger(UpdateTracer.class);
+    private static final long SAMPLE_SCALE = 1L << 32;
+
+    /**
+     * Tracer which traces nothing.
+     */
+    public static final UpdateTracer DISABLED = new UpdateTracer(0, Collections.emptySet());
+
+    private final boolean enabled;
+    private final long sampleThreshold;
+    private final ImmutableLongMap<Boolean> chats;
+
+    /**
+     * @param sampleRate fraction of updates to trace, from {@code 0} to {@code 1}
+     * @param chatIds    chats whose updates are always traced, user ids for queries
+     */
+    public UpdateTracer(double sampleRate, Set<Long> chatIds) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate should be in [0, 1]: " + sampleRate);
+        }
+        sampleThreshold = (long) (sampleRate * SAMPLE_SCALE);
+        chats = ImmutableLongMap.copyOf(Maps.asMap(chatIds, chatId -> Boolean.TRUE), null);
+        enabled = sampleThreshold > 0 || chats.size() > 0;
+    }
+
+    /**
+     * @return tracer configured by {@link TelegramBotBuilder#traceSampleRate(double)} and
+     * {@link TelegramBotBuilder#traceChats(Set)}
+     */
+    public static UpdateTracer of(TelegramBotBuilder botBuilder) {
+        return botBuilder.getTraceSampleRate() == 0 && botBuilder.getTraceChats().isEmpty()
+            ? DISABLED
+            : new UpdateTracer(botBuilder.getTraceSampleRate(), botBuilder.getTraceChats());
+    }
+
+    /**
+     * Update was processed in {@code nanos}.
+     *
+     * @param kind kind of update, {@code null} if update contains nothing known
+     */
+    public void traceUpdate(Update update, UpdateKind kind, long nanos) {
+        if (enabled && isTraced(update, kind)) {
+            logger.info("update={} kind={} chat={} nanos={}",
+                update.getUpdateId(), kind, chatKey(update, kind), nanos
+            );
+        }
+    }
+
+    /**
+     * {@code handler} processed update in {@code nanos}.
+     */
+    public void traceHandler(Update update, TelegramHandler handler, long nanos, boolean failed) {
+        if (enabled && isTraced(update)) {
+            UpdateKind kind = UpdateKind.of(update);
+            logger.info("update={} chat={} handler={}#{} nanos={} failed={}",
+                update.getUpdateId(), chatKey(update, kind), handler.getBean().getClass().getSimpleName(),
+                handler.getMethod().getName(), nanos, failed
+            );
+        }
+    }
+
+    /**
+     * {@code method} produced for update was sent in {@code nanos}.
+     */
+    public void traceSent(Update update, BotApiMethod<?> method, long nanos, boolean failed) {
+        if (enabled && isTraced(update)) {
+            logger.info("update={} chat={} sent={} nanos={} failed={}",
+                update.getUpdateId(), chatKey(update, UpdateKind.of(update)), method.getMethod(), nanos, failed
+            );
+        }
+    }
+
+    private boolean isTraced(Update update) {
+        return isTraced(update, UpdateKind.of(update));
+    }
+
+    private boolean isTraced(Update update, UpdateKind kind) {
+        if (!logger.isInfoEnabled()) {
+            return false;
+        }
+        if (isSampled(update.getUpdateId())) {
+            return true;
+        }
+        return kind != null && chats.get(kind.getChatKey(update)) != null;
+    }
+
+    private boolean isSampled(Integer updateId) {
+        if (sampleThreshold == 0 || updateId == null) {
+            return false;
+        }
+        int h = updateId * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0xFFFFFFFFL) < sampleThreshold;
+    }
+
+    private static Object chatKey(Update update, UpdateKind kind) {
+        return kind == null ? null : kind.getChatKey(update);
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateTracer{" +
+            "enabled=" + enabled +
+            ", sampleRate=" + (double) sampleThreshold / SAMPLE_SCALE +
+            ", chats=" + chats +
+            '}';
+    }
+}
@@ -5,7 +5,9 @@ import name.maratik.spring.telegram.config.TelegramBotBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramWebhookBot;
+import org.telegram.telegrambots.meta.ApiContext;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.objects.Update;
@@ -19,37 +21,82 @@ import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 public class WebhookTelegramBotService extends TelegramBotService {
     private static final Logger logger = LogManager.getLogger(WebhookTelegramBotService.class);
 
+    private final TelegramBotsApi api;
+    private final String botDescription;
     private final String username;
     private final String token;
     private final String path;
     private final TelegramWebhookBot client;
+    private final UpdateDispatcher dispatcher;
 
     public WebhookTelegramBotService(
         TelegramBotBuilder botBuilder, TelegramBotsApi api, ConfigurableBeanFactory configurableBeanFactory
     ) {
         super(api, configurableBeanFactory);
+        this.api = api;
+        botDescription = botBuilder.toString();
         username = botBuilder.getUsername();
         token = botBuilder.getToken();
         path = botBuilder.getPath();
-        client = new TelegramBotWebhookImpl();
+        client = new TelegramBotWebhookImpl(botBuilder.getBotOptions() != null
+            ? botBuilder.getBotOptions()
+            : ApiContext.getInstance(DefaultBotOptions.class)
+        );
+        dispatcher = botBuilder.isAsyncWebhook() ? new UpdateDispatcher(botBuilder, client) : null;
+        applyOptions(botBuilder);
+    }
+
+    @Override
+    public TelegramWebhookBot getClient() {
+        return client;
+    }
+
+    @Override
+    public String getBotUsername() {
+        return username;
+    }
+
+    @Override
+    protected void sendAsync(Update update, BotApiMethod<?> method, Runnable done) {
+        if (dispatcher == null || !dispatcher.enqueue(update, method, done)) {
+            super.sendAsync(update, method, done);
+        }
+    }
+
+    @Override
+    protected void registerBot() {
         try {
             api.registerBot(client);
         } catch (TelegramApiRequestException e) {
-            logger.error("Can not register Long Polling with {}", botBuilder, e);
+            logger.error("Can not register Webhook with {}", botDescription, e);
             throw new RuntimeException(e);
         }
     }
 
     @Override
-    public TelegramWebhookBot getClient() {
-        return client;
+    public void close() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        super.close();
     }
 
     private class TelegramBotWebhookImpl extends TelegramWebhookBot {
+        private TelegramBotWebhookImpl(DefaultBotOptions options) {
+            super(options);
+        }
 
         @Override
         public BotApiMethod<?> onWebhookUpdateReceived(Update update) {
-            return updateProcess(update).orElse(null);
+            if (dispatcher == null || isFast(update)) {
+                return updateProcess(update).orElse(null);
+            }
+            if (acceptUpdate(update)) {
+                dispatcher.dispatch(update, WebhookTelegramBotService.this::processAcceptedUpdate,
+                    () -> releaseUpdate(update)
+                );
+            }
+            return null;
         }
 
         @Override
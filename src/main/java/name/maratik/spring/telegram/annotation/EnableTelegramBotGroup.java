@@ -0,0 +1,27 @@
+package name.maratik.spring.telegram.annotation;
+
+import name.maratik.spring.telegram.config.TelegramBotGroupConfiguration;
+
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enable Telegram Bot annotations processing for several bots, configured by
+ * {@link name.maratik.spring.telegram.config.TelegramBotGroupBuilder} bean.
+ * Controllers are bound to bots by {@link TelegramBot#bot()}.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Import(TelegramBotGroupConfiguration.class)
+@Documented
+@Inherited
+public @interface EnableTelegramBotGroup {
+}
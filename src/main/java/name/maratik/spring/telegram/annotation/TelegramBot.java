@@ -33,4 +33,11 @@ public @interface TelegramBot {
      */
     @AliasFor("value")
     String[] userId() default {};
+
+    /**
+     * Name of the bot which this controller belongs to,
+     * see {@link name.maratik.spring.telegram.config.TelegramBotBuilder#name(String)}.
+     * Empty value means that controller belongs to every bot.
+     */
+    String bot() default "";
 }
@@ -0,0 +1,34 @@
+package name.maratik.spring.telegram.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks class which is packed into callback data by {@link name.maratik.spring.telegram.util.CallbackDataCodec}.
+ * Such class can be used as parameter of {@link TelegramCallbackQuery} handler.
+ * <p>
+ * Class should have no-arg constructor. Its non-static, non-transient fields should be non-final
+ * and of primitive, {@link Enum} or {@link String} types.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface TelegramCallbackData {
+    /**
+     * Prefix of callback data, which distinguishes this class from others.
+     */
+    String value();
+
+    /**
+     * Version of fields layout, should be changed on incompatible change of fields.
+     * Callback data of other version is rejected.
+     */
+    int version() default 0;
+}
@@ -1,5 +1,7 @@
 package name.maratik.spring.telegram.annotation;
 
+import org.springframework.core.annotation.AliasFor;
+
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
@@ -8,7 +10,10 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Default message handler.
+ * Callback query handler.
+ * <p>
+ * Query is routed to handler with exactly matching data, then to handler with the longest matching data prefix
+ * and then to handler without data specified.
  *
  * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
  */
@@ -17,4 +22,17 @@ import java.lang.annotation.Target;
 @Documented
 @Inherited
 public @interface TelegramCallbackQuery {
+    /**
+     * Alias for {@link #data()}.
+     */
+    @AliasFor("data")
+    String[] value() default {};
+
+    /**
+     * Callback data processed by annotated method. Data ending with pattern suffix, e.g. {@code buy_*},
+     * matches any data starting with {@code buy_}.
+     * If empty, annotated method processes callback queries not matched by other handlers.
+     */
+    @AliasFor("value")
+    String[] data() default {};
 }
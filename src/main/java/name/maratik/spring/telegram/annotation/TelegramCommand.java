@@ -35,6 +35,7 @@ public @interface TelegramCommand {
      * Command description for /help method.
      * Supports <code>${..}</code> and <code>#{...}</code> processing as
      * in {@link org.springframework.beans.factory.annotation.Value} annotation.
+     * Expression is evaluated once, when help message is requested for the first time.
      */
     String description() default "";
 
@@ -0,0 +1,23 @@
+package name.maratik.spring.telegram.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks handler which is cheap enough to run on the thread received update.
+ * <p>
+ * With {@link name.maratik.spring.telegram.config.TelegramBotBuilder#asyncWebhook(boolean)} such handler is invoked
+ * synchronously and its result is sent in webhook response, other handlers are processed asynchronously.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+@Inherited
+public @interface TelegramFast {
+}
@@ -0,0 +1,36 @@
+package name.maratik.spring.telegram.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Inline query handler.
+ * <p>
+ * {@link org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery} returned by handler is cached
+ * by user, query and offset, so repeated queries are answered without calling handler.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+@Inherited
+public @interface TelegramInlineQuery {
+    /**
+     * Maximum number of cached answers, {@code 0} disables caching.
+     *
+     * @return number or expression resolved to number
+     */
+    String cacheSize() default "1000";
+
+    /**
+     * How long answer is cached, in {@link java.time.Duration#parse(CharSequence) ISO-8601} format.
+     *
+     * @return duration or expression resolved to duration
+     */
+    String cacheTtl() default "PT1M";
+}
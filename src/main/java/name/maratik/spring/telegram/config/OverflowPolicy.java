@@ -0,0 +1,23 @@
+package name.maratik.spring.telegram.config;
+
+/**
+ * What to do with an incoming update when the long polling queue is full.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public enum OverflowPolicy {
+    /**
+     * Polling thread waits until there is room in the queue, so no new updates are fetched meanwhile.
+     */
+    BLOCK,
+    /**
+     * Polling thread processes the update itself if its chat has nothing pending,
+     * otherwise it waits as in {@link #BLOCK} to keep updates of the chat in order.
+     */
+    CALLER_RUNS,
+    /**
+     * The oldest pending update of all chats is dropped to make room for the incoming one.
+     * Dropped updates are counted.
+     */
+    DISCARD_OLDEST
+}
@@ -1,5 +1,14 @@
 package name.maratik.spring.telegram.config;
 
+import name.maratik.spring.telegram.UpdateExecutor;
+
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
 /**
  * Builder for Telegram Bot API. Should be provided as bean.
  *
@@ -8,11 +17,32 @@ package name.maratik.spring.telegram.config;
 public class TelegramBotBuilder {
 
     private static final int DEFAULT_MAX_THREADS = 30;
+    private static final double DEFAULT_GLOBAL_SEND_RATE = 30;
+    private static final double DEFAULT_CHAT_SEND_RATE = 1;
+    private static final int DEFAULT_SEND_THREADS = 4;
 
+    private String name;
     private String username;
     private String token;
     private String path;
     private int maxThreads = DEFAULT_MAX_THREADS;
+    private int queueCapacity;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private Executor executor;
+    private boolean virtualThreads;
+    private boolean rateLimitedSend;
+    private double globalSendRate = DEFAULT_GLOBAL_SEND_RATE;
+    private double chatSendRate = DEFAULT_CHAT_SEND_RATE;
+    private int sendThreads = DEFAULT_SEND_THREADS;
+    private Duration callbackQueryAnswerDeadline;
+    private int updateIdWindow;
+    private UpdateIdWatermarkStore updateIdWatermarkStore;
+    private boolean asyncWebhook;
+    private UpdateExecutor updateExecutor;
+    private TelegramBotMetrics metrics = TelegramBotMetrics.NOOP;
+    private double traceSampleRate;
+    private Set<Long> traceChats = Collections.emptySet();
+    private DefaultBotOptions botOptions;
 
     public TelegramBotBuilder() {
     }
@@ -22,6 +52,43 @@ public class TelegramBotBuilder {
         this.token = token;
     }
 
+    /**
+     * Creates copy of {@code other}, so it can be modified without affecting the original.
+     */
+    public TelegramBotBuilder(TelegramBotBuilder other) {
+        name = other.name;
+        username = other.username;
+        token = other.token;
+        path = other.path;
+        maxThreads = other.maxThreads;
+        queueCapacity = other.queueCapacity;
+        overflowPolicy = other.overflowPolicy;
+        executor = other.executor;
+        virtualThreads = other.virtualThreads;
+        rateLimitedSend = other.rateLimitedSend;
+        globalSendRate = other.globalSendRate;
+        chatSendRate = other.chatSendRate;
+        sendThreads = other.sendThreads;
+        callbackQueryAnswerDeadline = other.callbackQueryAnswerDeadline;
+        updateIdWindow = other.updateIdWindow;
+        updateIdWatermarkStore = other.updateIdWatermarkStore;
+        asyncWebhook = other.asyncWebhook;
+        updateExecutor = other.updateExecutor;
+        metrics = other.metrics;
+        traceSampleRate = other.traceSampleRate;
+        traceChats = other.traceChats;
+        botOptions = other.botOptions;
+    }
+
+    /**
+     * Name of the bot, which selects its controllers by {@link name.maratik.spring.telegram.annotation.TelegramBot#bot()}.
+     * Defaults to username.
+     */
+    public TelegramBotBuilder name(String name) {
+        this.name = name;
+        return this;
+    }
+
     /**
      * Bot username.
      */
@@ -54,6 +121,167 @@ public class TelegramBotBuilder {
         return this;
     }
 
+    /**
+     * Maximum number of updates waiting for a free thread in long polling mode.
+     * Default value {@code 0} means unbounded.
+     */
+    public TelegramBotBuilder queueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * What to do with an incoming update when {@link #queueCapacity(int)} is reached.
+     * Default is {@link OverflowPolicy#BLOCK}.
+     */
+    public TelegramBotBuilder overflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Executor used to process messages in long polling mode instead of internal thread pool.
+     * Its lifecycle is managed by user, so it is not shut down when bot service is closed.
+     * {@link #maxThreads(int)} is ignored when executor is set.
+     */
+    public TelegramBotBuilder executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Process each message in long polling mode in its own virtual thread instead of internal thread pool.
+     * Falls back to thread pool if runtime does not support virtual threads.
+     * {@link #maxThreads(int)} is ignored when virtual threads are used.
+     */
+    public TelegramBotBuilder virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Send handler results in long polling or {@link #asyncWebhook(boolean) asynchronous webhook} mode through a queue which respects telegram rate limits,
+     * instead of sending them synchronously from handler thread.
+     */
+    public TelegramBotBuilder rateLimitedSend(boolean rateLimitedSend) {
+        this.rateLimitedSend = rateLimitedSend;
+        return this;
+    }
+
+    /**
+     * Maximum messages per second sent by the bot when {@link #rateLimitedSend(boolean)} is on.
+     */
+    public TelegramBotBuilder globalSendRate(double globalSendRate) {
+        this.globalSendRate = globalSendRate;
+        return this;
+    }
+
+    /**
+     * Maximum messages per second sent to one chat when {@link #rateLimitedSend(boolean)} is on.
+     */
+    public TelegramBotBuilder chatSendRate(double chatSendRate) {
+        this.chatSendRate = chatSendRate;
+        return this;
+    }
+
+    /**
+     * Number of threads performing requests to telegram when {@link #rateLimitedSend(boolean)} is on.
+     */
+    public TelegramBotBuilder sendThreads(int sendThreads) {
+        this.sendThreads = sendThreads;
+        return this;
+    }
+
+    /**
+     * Answer callback queries automatically: right after handler completes if it did not return
+     * {@link org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery}, or when deadline expires
+     * if handler is still running. Default value {@code null} means callback queries are not answered automatically.
+     */
+    public TelegramBotBuilder callbackQueryAnswerDeadline(Duration callbackQueryAnswerDeadline) {
+        this.callbackQueryAnswerDeadline = callbackQueryAnswerDeadline;
+        return this;
+    }
+
+    /**
+     * Number of recent update ids remembered to drop redelivered updates.
+     * Default value {@code 0} means redelivered updates are not dropped.
+     */
+    public TelegramBotBuilder updateIdWindow(int updateIdWindow) {
+        this.updateIdWindow = updateIdWindow;
+        return this;
+    }
+
+    /**
+     * Storage of the highest update id such that every update up to it is processed and its results are sent,
+     * so updates are not processed again after restart. Updates queued or in flight on shutdown stay above it.
+     * Used only when {@link #updateIdWindow(int)} is set.
+     */
+    public TelegramBotBuilder updateIdWatermarkStore(UpdateIdWatermarkStore updateIdWatermarkStore) {
+        this.updateIdWatermarkStore = updateIdWatermarkStore;
+        return this;
+    }
+
+    /**
+     * Acknowledge webhook requests immediately and process updates on bot executor, as in long polling mode.
+     * Updates handled by {@link name.maratik.spring.telegram.annotation.TelegramFast} handlers are still
+     * processed synchronously and their results are sent in webhook response.
+     */
+    public TelegramBotBuilder asyncWebhook(boolean asyncWebhook) {
+        this.asyncWebhook = asyncWebhook;
+        return this;
+    }
+
+    /**
+     * Update executor shared with other bots, see {@link TelegramBotGroupBuilder}.
+     * Its lifecycle is managed by its owner, executor options of this builder are ignored when it is set.
+     */
+    public TelegramBotBuilder updateExecutor(UpdateExecutor updateExecutor) {
+        this.updateExecutor = updateExecutor;
+        return this;
+    }
+
+    /**
+     * Receives measurements of update processing and sending. Default is {@link TelegramBotMetrics#NOOP}.
+     */
+    public TelegramBotBuilder metrics(TelegramBotMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Fraction of updates, from {@code 0} to {@code 1}, traced by {@link name.maratik.spring.telegram.UpdateTracer}.
+     * Default value {@code 0} means updates are traced only for {@link #traceChats(Set)}.
+     */
+    public TelegramBotBuilder traceSampleRate(double traceSampleRate) {
+        this.traceSampleRate = traceSampleRate;
+        return this;
+    }
+
+    /**
+     * Chats whose updates are always traced by {@link name.maratik.spring.telegram.UpdateTracer}.
+     * For queries user id is used as chat id.
+     */
+    public TelegramBotBuilder traceChats(Set<Long> traceChats) {
+        this.traceChats = traceChats;
+        return this;
+    }
+
+    /**
+     * Options of telegram client, e.g. proxy or Bot API base URL. Default value {@code null} means default options.
+     */
+    public TelegramBotBuilder botOptions(DefaultBotOptions botOptions) {
+        this.botOptions = botOptions;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -86,13 +314,167 @@ public class TelegramBotBuilder {
         this.maxThreads = maxThreads;
     }
 
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public boolean isRateLimitedSend() {
+        return rateLimitedSend;
+    }
+
+    public void setRateLimitedSend(boolean rateLimitedSend) {
+        this.rateLimitedSend = rateLimitedSend;
+    }
+
+    public double getGlobalSendRate() {
+        return globalSendRate;
+    }
+
+    public void setGlobalSendRate(double globalSendRate) {
+        this.globalSendRate = globalSendRate;
+    }
+
+    public double getChatSendRate() {
+        return chatSendRate;
+    }
+
+    public void setChatSendRate(double chatSendRate) {
+        this.chatSendRate = chatSendRate;
+    }
+
+    public int getSendThreads() {
+        return sendThreads;
+    }
+
+    public void setSendThreads(int sendThreads) {
+        this.sendThreads = sendThreads;
+    }
+
+    public Duration getCallbackQueryAnswerDeadline() {
+        return callbackQueryAnswerDeadline;
+    }
+
+    public void setCallbackQueryAnswerDeadline(Duration callbackQueryAnswerDeadline) {
+        this.callbackQueryAnswerDeadline = callbackQueryAnswerDeadline;
+    }
+
+    public int getUpdateIdWindow() {
+        return updateIdWindow;
+    }
+
+    public void setUpdateIdWindow(int updateIdWindow) {
+        this.updateIdWindow = updateIdWindow;
+    }
+
+    public UpdateIdWatermarkStore getUpdateIdWatermarkStore() {
+        return updateIdWatermarkStore;
+    }
+
+    public void setUpdateIdWatermarkStore(UpdateIdWatermarkStore updateIdWatermarkStore) {
+        this.updateIdWatermarkStore = updateIdWatermarkStore;
+    }
+
+    public boolean isAsyncWebhook() {
+        return asyncWebhook;
+    }
+
+    public void setAsyncWebhook(boolean asyncWebhook) {
+        this.asyncWebhook = asyncWebhook;
+    }
+
+    public UpdateExecutor getUpdateExecutor() {
+        return updateExecutor;
+    }
+
+    public void setUpdateExecutor(UpdateExecutor updateExecutor) {
+        this.updateExecutor = updateExecutor;
+    }
+
+    public TelegramBotMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(TelegramBotMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public double getTraceSampleRate() {
+        return traceSampleRate;
+    }
+
+    public void setTraceSampleRate(double traceSampleRate) {
+        this.traceSampleRate = traceSampleRate;
+    }
+
+    public Set<Long> getTraceChats() {
+        return traceChats;
+    }
+
+    public void setTraceChats(Set<Long> traceChats) {
+        this.traceChats = traceChats;
+    }
+
+    public DefaultBotOptions getBotOptions() {
+        return botOptions;
+    }
+
+    public void setBotOptions(DefaultBotOptions botOptions) {
+        this.botOptions = botOptions;
+    }
+
     @Override
     public String toString() {
         return "TelegramBotBuilder{" +
-            "username='" + username + '\'' +
+            "name='" + name + '\'' +
+            ", username='" + username + '\'' +
             ", token='" + token + '\'' +
             ", path='" + path + '\'' +
             ", maxThreads=" + maxThreads +
+            ", queueCapacity=" + queueCapacity +
+            ", overflowPolicy=" + overflowPolicy +
+            ", executor=" + executor +
+            ", virtualThreads=" + virtualThreads +
+            ", rateLimitedSend=" + rateLimitedSend +
+            ", globalSendRate=" + globalSendRate +
+            ", chatSendRate=" + chatSendRate +
+            ", sendThreads=" + sendThreads +
+            ", callbackQueryAnswerDeadline=" + callbackQueryAnswerDeadline +
+            ", updateIdWindow=" + updateIdWindow +
+            ", updateIdWatermarkStore=" + updateIdWatermarkStore +
+            ", asyncWebhook=" + asyncWebhook +
+            ", updateExecutor=" + updateExecutor +
+            ", metrics=" + metrics +
+            ", traceSampleRate=" + traceSampleRate +
+            ", traceChats=" + traceChats +
+            ", botOptions=" + botOptions +
             '}';
     }
 }
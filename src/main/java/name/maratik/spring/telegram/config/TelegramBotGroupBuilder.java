@@ -0,0 +1,160 @@
+package name.maratik.spring.telegram.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Builder for group of Telegram Bots served by one runtime. Should be provided as bean,
+ * see {@link name.maratik.spring.telegram.annotation.EnableTelegramBotGroup}.
+ * <p>
+ * Updates of all bots are processed by one shared executor configured by this builder,
+ * executor options of bot builders are ignored.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class TelegramBotGroupBuilder {
+
+    private static final int DEFAULT_MAX_THREADS = 30;
+
+    private final Map<TelegramBotBuilder, TelegramBotType> bots = new LinkedHashMap<>();
+    private int maxThreads = DEFAULT_MAX_THREADS;
+    private int queueCapacity;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private Executor executor;
+    private boolean virtualThreads;
+    private TelegramBotMetrics metrics = TelegramBotMetrics.NOOP;
+
+    /**
+     * Adds bot of {@code type}. Bot names should be unique, see {@link TelegramBotBuilder#name(String)}.
+     * {@code botBuilder} should not have
+     * {@link TelegramBotBuilder#updateExecutor(name.maratik.spring.telegram.UpdateExecutor) update executor},
+     * the group one is used. {@code botBuilder} itself is not modified by the group.
+     */
+    public TelegramBotGroupBuilder bot(TelegramBotType type, TelegramBotBuilder botBuilder) {
+        bots.put(botBuilder, type);
+        return this;
+    }
+
+    /**
+     * Maximum parallel threads used to process updates of all bots.
+     */
+    public TelegramBotGroupBuilder maxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+        return this;
+    }
+
+    /**
+     * Maximum number of updates of all bots waiting for a free thread.
+     * Default value {@code 0} means unbounded.
+     */
+    public TelegramBotGroupBuilder queueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * What to do with an incoming update when {@link #queueCapacity(int)} is reached.
+     * Default is {@link OverflowPolicy#BLOCK}.
+     */
+    public TelegramBotGroupBuilder overflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Executor used to process updates instead of internal thread pool.
+     * Its lifecycle is managed by user. {@link #maxThreads(int)} is ignored when executor is set.
+     */
+    public TelegramBotGroupBuilder executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Process each update in its own virtual thread instead of internal thread pool.
+     * Requires Java 21 or later, otherwise internal thread pool is used.
+     */
+    public TelegramBotGroupBuilder virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Receives measurements of shared executor and of bots which do not have own
+     * {@link TelegramBotBuilder#metrics(TelegramBotMetrics) metrics}. Default is {@link TelegramBotMetrics#NOOP}.
+     */
+    public TelegramBotGroupBuilder metrics(TelegramBotMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Bot builders with types of bots, in order of addition.
+     */
+    public Map<TelegramBotBuilder, TelegramBotType> getBots() {
+        return Collections.unmodifiableMap(bots);
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public TelegramBotMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(TelegramBotMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String toString() {
+        return "TelegramBotGroupBuilder{" +
+            "bots=" + bots +
+            ", maxThreads=" + maxThreads +
+            ", queueCapacity=" + queueCapacity +
+            ", overflowPolicy=" + overflowPolicy +
+            ", executor=" + executor +
+            ", virtualThreads=" + virtualThreads +
+            ", metrics=" + metrics +
+            '}';
+    }
+}
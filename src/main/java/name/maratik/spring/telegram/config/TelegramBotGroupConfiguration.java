@@ -0,0 +1,46 @@
+package name.maratik.spring.telegram.config;
+
+import name.maratik.spring.telegram.TelegramBeanPostProcessor;
+import name.maratik.spring.telegram.TelegramBotGroup;
+
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.telegram.telegrambots.ApiContextInitializer;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+
+/**
+ * Configuration which will be used to initialize group of telegram bots.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class TelegramBotGroupConfiguration {
+    /**
+     * Bean post-processor to process Telegram Bot API annotations for all bots of the group.
+     */
+    @Bean
+    public TelegramBeanPostProcessor telegramBeanPostProcessor(
+        TelegramBotGroup telegramBotGroup, ConfigurableBeanFactory configurableBeanFactory
+    ) {
+        return new TelegramBeanPostProcessor(telegramBotGroup.getServices(), configurableBeanFactory);
+    }
+
+    /**
+     * Telegram Bot Services of the group.
+     */
+    @Bean
+    public TelegramBotGroup telegramBotGroup(
+        TelegramBotGroupBuilder telegramBotGroupBuilder, TelegramBotsApi api,
+        ConfigurableBeanFactory configurableBeanFactory
+    ) {
+        return new TelegramBotGroup(telegramBotGroupBuilder, api, configurableBeanFactory);
+    }
+
+    /**
+     * Telegram Bots API.
+     */
+    @Bean
+    public TelegramBotsApi telegramBotsApi() {
+        ApiContextInitializer.init();
+        return new TelegramBotsApi();
+    }
+}
@@ -0,0 +1,65 @@
+package name.maratik.spring.telegram.config;
+
+import name.maratik.spring.telegram.model.TelegramHandler;
+import name.maratik.spring.telegram.model.UpdateKind;
+
+/**
+ * Receives measurements of update processing and sending, e.g. to feed histograms and counters of metrics library.
+ * <p>
+ * Methods are called on hot path from many threads concurrently, so implementation should be thread-safe
+ * and cheap. Durations are in nanoseconds. Arguments are primitives or objects which already exist,
+ * so recording itself allocates nothing.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public interface TelegramBotMetrics {
+    /**
+     * Metrics which ignore everything.
+     */
+    TelegramBotMetrics NOOP = new TelegramBotMetrics() {
+        @Override
+        public String toString() {
+            return "TelegramBotMetrics.NOOP";
+        }
+    };
+
+    /**
+     * Update waited in queue for a free thread for {@code nanos}.
+     */
+    default void recordQueueWait(long nanos) {
+    }
+
+    /**
+     * Update was dropped because of queue overflow.
+     */
+    default void recordRejected() {
+    }
+
+    /**
+     * Processing of update started. Number of updates in flight is the number of started updates
+     * minus the number of {@link #recordUpdate(UpdateKind, long) completed} ones.
+     */
+    default void recordUpdateStarted() {
+    }
+
+    /**
+     * Processing of update completed in {@code nanos}.
+     *
+     * @param kind kind of update, {@code null} if update contains nothing known
+     */
+    default void recordUpdate(UpdateKind kind, long nanos) {
+    }
+
+    /**
+     * Handler method returned or failed in {@code nanos}.
+     * For handlers returning {@link java.util.concurrent.CompletionStage} only synchronous part is measured.
+     */
+    default void recordHandler(TelegramHandler handler, long nanos, boolean failed) {
+    }
+
+    /**
+     * Method was sent to telegram or failed in {@code nanos}.
+     */
+    default void recordSend(long nanos, boolean failed) {
+    }
+}
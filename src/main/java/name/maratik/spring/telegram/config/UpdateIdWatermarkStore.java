@@ -0,0 +1,22 @@
+package name.maratik.spring.telegram.config;
+
+import java.util.OptionalInt;
+
+/**
+ * Persistent storage of the completed watermark, the highest update id such that every update up to it is processed,
+ * so updates redelivered after restart are not processed again.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public interface UpdateIdWatermarkStore {
+    /**
+     * @return stored update id or empty if nothing is stored yet
+     */
+    OptionalInt load();
+
+    /**
+     * Stores {@code updateId}. Calls may come from different threads and out of order,
+     * so implementation should keep the highest value.
+     */
+    void store(int updateId);
+}
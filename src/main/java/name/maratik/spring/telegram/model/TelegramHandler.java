@@ -1,9 +1,27 @@
 package name.maratik.spring.telegram.model;
 
 import name.maratik.spring.telegram.annotation.TelegramCommand;
+import name.maratik.spring.telegram.annotation.TelegramFast;
 
+import com.google.common.collect.ImmutableList;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ReflectionUtils;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 /**
  * Telegram Bot command handler descriptor.
@@ -11,14 +29,53 @@ import java.util.Optional;
  * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
  */
 public class TelegramHandler {
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
     private final Object bean;
     private final Method method;
     private final TelegramCommand telegramCommand;
+    private final ReturnKind returnKind;
+    private final boolean fast;
+    private final MethodHandle invoker;
+    private final List<BiFunction<TelegramMessageCommand, Update, ?>> argumentResolvers;
 
+    /**
+     * @param bean            bean which contains handler
+     * @param method          handler method
+     * @param telegramCommand command annotation of handler method, if any
+     * @deprecated use {@link #TelegramHandler(Object, Method, TelegramCommand, List)}, handler created by this
+     * constructor has no argument resolvers, so method with parameters can be invoked only with explicit arguments
+     * by {@link #invoke(Object[])}
+     */
+    @Deprecated
     public TelegramHandler(Object bean, Method method, TelegramCommand telegramCommand) {
+        this(bean, method, telegramCommand, Arrays.stream(method.getParameters())
+            .map(TelegramHandler::unresolvedArgument)
+            .collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * @param bean              bean which contains handler
+     * @param method            handler method
+     * @param telegramCommand   command annotation of handler method, if any
+     * @param argumentResolvers resolvers for each of handler method parameters, in order of declaration
+     */
+    public TelegramHandler(
+        Object bean, Method method, TelegramCommand telegramCommand,
+        List<BiFunction<TelegramMessageCommand, Update, ?>> argumentResolvers
+    ) {
+        if (argumentResolvers.size() != method.getParameterCount()) {
+            throw new IllegalArgumentException("Expected " + method.getParameterCount() +
+                " argument resolvers for " + method + ", got " + argumentResolvers.size());
+        }
         this.bean = bean;
         this.method = method;
         this.telegramCommand = telegramCommand;
+        this.argumentResolvers = ImmutableList.copyOf(argumentResolvers);
+        returnKind = ReturnKind.of(method.getReturnType());
+        fast = AnnotatedElementUtils.hasAnnotation(method, TelegramFast.class);
+        invoker = makeInvoker(bean, method);
     }
 
     /**
@@ -42,12 +99,118 @@ public class TelegramHandler {
         return Optional.ofNullable(telegramCommand);
     }
 
+    /**
+     * Kind of value returned by handler method, derived once at handler creation.
+     */
+    public ReturnKind getReturnKind() {
+        return returnKind;
+    }
+
+    /**
+     * {@code true} if handler method is annotated with {@link TelegramFast}.
+     */
+    public boolean isFast() {
+        return fast;
+    }
+
+    /**
+     * Resolves handler method arguments from update and invokes handler method on its bean.
+     *
+     * @param telegramMessageCommand parsed message command, {@code null} if update is not a message
+     * @param update                 update to process
+     * @return value returned by handler method, {@code null} for {@code void} methods
+     */
+    public Object invoke(TelegramMessageCommand telegramMessageCommand, Update update) throws Exception {
+        int size = argumentResolvers.size();
+        Object[] arguments = new Object[size];
+        for (int i = 0; i < size; i++) {
+            arguments[i] = argumentResolvers.get(i).apply(telegramMessageCommand, update);
+        }
+        return invoke(arguments);
+    }
+
+    /**
+     * Invokes handler method on its bean. Exceptions thrown by handler method are rethrown as is.
+     *
+     * @param arguments arguments for handler method
+     * @return value returned by handler method, {@code null} for {@code void} methods
+     */
+    public Object invoke(Object[] arguments) throws Exception {
+        try {
+            return (Object) invoker.invokeExact(arguments);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
     @Override
     public String toString() {
         return "TelegramHandler{" +
             "bean=" + bean +
             ", method=" + method +
             ", telegramCommand=" + telegramCommand +
+            ", returnKind=" + returnKind +
+            ", fast=" + fast +
             '}';
     }
+
+    private static MethodHandle makeInvoker(Object bean, Method method) {
+        ReflectionUtils.makeAccessible(method);
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            // static handler has no receiver to bind
+            return (Modifier.isStatic(method.getModifiers()) ? handle : handle.bindTo(bean))
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can not make invoker for " + method, e);
+        }
+    }
+
+    private static BiFunction<TelegramMessageCommand, Update, ?> unresolvedArgument(Parameter parameter) {
+        return (telegramMessageCommand, update) -> {
+            throw new IllegalStateException("No argument resolver for parameter " + parameter + " of " +
+                parameter.getDeclaringExecutable());
+        };
+    }
+
+    /**
+     * Kinds of handler method return values supported by dispatcher.
+     */
+    public enum ReturnKind {
+        /**
+         * Handler returns nothing.
+         */
+        VOID,
+        /**
+         * Handler returns {@link BotApiMethod} which should be sent to telegram.
+         */
+        BOT_API_METHOD,
+        /**
+         * Handler returns {@link CompletionStage} which completes with {@link BotApiMethod} to be sent to telegram.
+         */
+        COMPLETION_STAGE,
+        /**
+         * Handler return type is not supported.
+         */
+        UNSUPPORTED;
+
+        /**
+         * Derives return kind from method return type.
+         */
+        public static ReturnKind of(Class<?> returnType) {
+            if (returnType == void.class || returnType == Void.class) {
+                return VOID;
+            }
+            if (returnType != null && BotApiMethod.class.isAssignableFrom(returnType)) {
+                return BOT_API_METHOD;
+            }
+            if (returnType != null && CompletionStage.class.isAssignableFrom(returnType)) {
+                return COMPLETION_STAGE;
+            }
+            return UNSUPPORTED;
+        }
+    }
 }
@@ -1,7 +1,5 @@
 package name.maratik.spring.telegram.model;
 
-import name.maratik.spring.telegram.util.Util;
-
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
@@ -11,78 +9,146 @@ import java.util.OptionalLong;
 
 /**
  * Telegram bot command splitted by command and arguments.
+ * <p>
+ * Parsing only finds offsets in the message text, command and argument strings are created
+ * when they are requested for the first time.
  *
  * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
  */
 public class TelegramMessageCommand {
-    private final String command;
-    private final String argument;
-    private final boolean isCommand;
-    private final Long forwardedFrom;
+    private static final int NONE = -1;
+
+    private final String text;
+    private final int commandEnd;
+    private final int argumentStart;
+    private final boolean forwarded;
+    private final long forwardedFrom;
+    private String command;
+    private String argument;
 
     public TelegramMessageCommand(Update update) {
+        this(update, null);
+    }
+
+    /**
+     * @param botUsername username of the bot, {@code /command@botUsername} is treated as {@code /command}
+     *                    and commands addressed to other bots are treated as plain text.
+     *                    If {@code null}, any {@code @username} suffix is stripped.
+     */
+    public TelegramMessageCommand(Update update, String botUsername) {
         Message message = update.getMessage();
-        String messageText = message.getText();
-        if (isSlashStart(messageText)) {
-            int spacePos = messageText.indexOf(' ');
-            if (spacePos != -1) {
-                command = messageText.substring(0, spacePos);
-                argument = messageText.substring(spacePos + 1);
-            } else {
-                command = messageText;
-                argument = null;
-            }
-            isCommand = true;
+        text = message.getText();
+        int end = isSlashStart(text) ? commandEnd(text) : NONE;
+        int atPos = end == NONE ? NONE : text.lastIndexOf('@', end - 1);
+        if (end != NONE && (atPos <= 0 || isBotUsername(text, atPos + 1, end, botUsername))) {
+            commandEnd = atPos <= 0 ? end : atPos;
+            argumentStart = end == text.length() ? NONE : end + 1;
         } else {
-            command = null;
-            argument = messageText;
-            isCommand = false;
+            commandEnd = NONE;
+            argumentStart = text == null ? NONE : 0;
         }
-        this.forwardedFrom = Optional.ofNullable(message.getForwardFrom())
-            .map(User::getId)
-            .map(Integer::longValue)
-            .orElse(null);
+        User forwardFrom = message.getForwardFrom();
+        forwarded = forwardFrom != null;
+        forwardedFrom = forwarded ? forwardFrom.getId() : 0;
     }
 
     /**
      * Current command received from user.
      */
     public Optional<String> getCommand() {
-        return Optional.ofNullable(command);
+        return Optional.ofNullable(getCommandOrNull());
     }
 
     /**
      * Command arguments.
      */
     public Optional<String> getArgument() {
-        return Optional.ofNullable(argument);
+        return Optional.ofNullable(getArgumentOrNull());
+    }
+
+    /**
+     * Same as {@link #getCommand()}, but returns {@code null} if message is not a command.
+     */
+    public String getCommandOrNull() {
+        if (command == null && commandEnd != NONE) {
+            command = text.substring(0, commandEnd);
+        }
+        return command;
+    }
+
+    /**
+     * Same as {@link #getArgument()}, but returns {@code null} if there are no arguments.
+     */
+    public String getArgumentOrNull() {
+        if (argument == null && argumentStart != NONE) {
+            argument = text.substring(argumentStart);
+        }
+        return argument;
+    }
+
+    /**
+     * Message text, command occupies its first {@link #getCommandEnd()} characters.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * End of the command in {@link #getText()} excluding {@code @botUsername} suffix, {@code -1} if it is not command.
+     */
+    public int getCommandEnd() {
+        return commandEnd;
     }
 
     /**
      * {@code true} if current message is command.
      */
     public boolean isCommand() {
-        return isCommand;
+        return commandEnd != NONE;
+    }
+
+    /**
+     * {@code true} if current message is forwarded from user.
+     */
+    public boolean isForwarded() {
+        return forwarded;
     }
 
     /**
      * User ID, from whom this forward is originated.
      */
     public OptionalLong getForwardedFrom() {
-        return Util.optionalOf(forwardedFrom);
+        return forwarded ? OptionalLong.of(forwardedFrom) : OptionalLong.empty();
+    }
+
+    /**
+     * Same as {@link #getForwardedFrom()}, valid only if {@link #isForwarded()}.
+     */
+    public long getForwardedFromId() {
+        return forwardedFrom;
     }
 
     @Override
     public String toString() {
         return "TelegramMessageCommand{" +
-            "command='" + command + '\'' +
-            ", argument='" + argument + '\'' +
-            ", isCommand=" + isCommand +
-            ", forwardedFrom=" + forwardedFrom +
+            "command='" + getCommandOrNull() + '\'' +
+            ", argument='" + getArgumentOrNull() + '\'' +
+            ", isCommand=" + isCommand() +
+            ", forwardedFrom=" + (forwarded ? Long.toString(forwardedFrom) : "null") +
             '}';
     }
 
     private static boolean isSlashStart(String message) {
         return message != null && message.startsWith("/");
     }
+
+    private static int commandEnd(String message) {
+        int spacePos = message.indexOf(' ');
+        return spacePos == NONE ? message.length() : spacePos;
+    }
+
+    private static boolean isBotUsername(String message, int start, int end, String botUsername) {
+        return botUsername == null || end - start == botUsername.length() &&
+            message.regionMatches(true, start, botUsername, 0, botUsername.length());
+    }
 }
@@ -0,0 +1,86 @@
+package name.maratik.spring.telegram.model;
+
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.ChosenInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.payments.PreCheckoutQuery;
+import org.telegram.telegrambots.meta.api.objects.payments.ShippingQuery;
+
+import java.util.function.Function;
+
+/**
+ * Kind of {@link Update}, determined by which of its optional parts is present.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public enum UpdateKind {
+    MESSAGE(Message.class, Update::getMessage, Message::getFrom, Message::getChatId),
+    EDITED_MESSAGE(Message.class, Update::getEditedMessage, Message::getFrom, Message::getChatId),
+    CHANNEL_POST(Message.class, Update::getChannelPost, Message::getFrom, Message::getChatId),
+    EDITED_CHANNEL_POST(Message.class, Update::getEditedChannelPost, Message::getFrom, Message::getChatId),
+    INLINE_QUERY(InlineQuery.class, Update::getInlineQuery, InlineQuery::getFrom, null),
+    CHOSEN_INLINE_QUERY(ChosenInlineQuery.class, Update::getChosenInlineQuery, ChosenInlineQuery::getFrom, null),
+    CALLBACK_QUERY(CallbackQuery.class, Update::getCallbackQuery, CallbackQuery::getFrom, null),
+    SHIPPING_QUERY(ShippingQuery.class, Update::getShippingQuery, ShippingQuery::getFrom, null),
+    PRE_CHECKOUT_QUERY(PreCheckoutQuery.class, Update::getPreCheckoutQuery, PreCheckoutQuery::getFrom, null);
+
+    private static final UpdateKind[] VALUES = values();
+
+    private final Class<?> payloadType;
+    private final Function<Update, ?> payload;
+    private final Function<Update, User> user;
+    private final Function<Update, Long> chatId;
+
+    <T> UpdateKind(
+        Class<T> payloadType, Function<Update, T> payload, Function<T, User> user, Function<T, Long> chatId
+    ) {
+        this.payloadType = payloadType;
+        this.payload = payload;
+        this.user = payload.andThen(user);
+        this.chatId = chatId == null ? null : payload.andThen(chatId);
+    }
+
+    /**
+     * @return kind of {@code update} or {@code null} if it contains nothing known
+     */
+    public static UpdateKind of(Update update) {
+        for (UpdateKind kind : VALUES) {
+            if (kind.payload.apply(update) != null) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Type of {@link #getPayload(Update)}.
+     */
+    public Class<?> getPayloadType() {
+        return payloadType;
+    }
+
+    /**
+     * Part of {@code update} of this kind, e.g. {@link Message} for {@link #MESSAGE}.
+     */
+    public Object getPayload(Update update) {
+        return payload.apply(update);
+    }
+
+    /**
+     * Sender of {@code update} of this kind, may be {@code null} for channel posts.
+     */
+    public User getUser(Update update) {
+        return user.apply(update);
+    }
+
+    /**
+     * Chat of message-like {@code update}, otherwise its sender.
+     * Updates with the same key should be processed in order.
+     */
+    public long getChatKey(Update update) {
+        return chatId != null ? chatId.apply(update) : user.apply(update).getId();
+    }
+}
@@ -0,0 +1,336 @@
+package name.maratik.spring.telegram.util;
+
+import name.maratik.spring.telegram.annotation.TelegramCallbackData;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Packs objects of {@link TelegramCallbackData} classes into callback data and unpacks them back.
+ * <p>
+ * Callback data is {@code prefix:payload}, where payload is URL-safe base64 of version byte followed by fields
+ * in order of their names. Integral fields are written as zigzag varints, enums as varint ordinals,
+ * strings as varint length followed by UTF-8 bytes. Telegram limits callback data by {@value #MAX_DATA_LENGTH} bytes.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class CallbackDataCodec<T> {
+    public static final int MAX_DATA_LENGTH = 64;
+    private static final char SEPARATOR = ':';
+    private static final ClassValue<CallbackDataCodec<?>> CODECS = new ClassValue<CallbackDataCodec<?>>() {
+        @Override
+        protected CallbackDataCodec<?> computeValue(Class<?> type) {
+            return new CallbackDataCodec<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final String prefix;
+    /**
+     * Length of {@link #prefix} in UTF-8, as telegram limit is in bytes.
+     */
+    private final int prefixLength;
+    private final byte version;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fields;
+
+    private CallbackDataCodec(Class<T> type) {
+        TelegramCallbackData callbackData = type.getAnnotation(TelegramCallbackData.class);
+        if (callbackData == null) {
+            throw new IllegalArgumentException(type + " is not annotated with " + TelegramCallbackData.class);
+        }
+        this.type = type;
+        prefix = callbackData.value() + SEPARATOR;
+        prefixLength = prefix.getBytes(StandardCharsets.UTF_8).length;
+        version = (byte) callbackData.version();
+        try {
+            constructor = MethodHandles.lookup().unreflectConstructor(accessible(type.getDeclaredConstructor()))
+                .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No accessible no-arg constructor in " + type, e);
+        }
+        fields = Arrays.stream(type.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()))
+            .sorted(Comparator.comparing(Field::getName))
+            .map(FieldCodec::new)
+            .toArray(FieldCodec[]::new);
+    }
+
+    /**
+     * @return codec for {@code type} annotated with {@link TelegramCallbackData}
+     * @throws IllegalArgumentException if {@code type} could not be packed into callback data
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CallbackDataCodec<T> of(Class<T> type) {
+        return (CallbackDataCodec<T>) CODECS.get(type);
+    }
+
+    /**
+     * @return {@code true} if {@code type} is annotated with {@link TelegramCallbackData}
+     */
+    public static boolean isCallbackData(Class<?> type) {
+        return type.isAnnotationPresent(TelegramCallbackData.class);
+    }
+
+    /**
+     * Prefix of all callback data of this codec, including separator.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return {@code true} if {@code data} is produced by this codec
+     */
+    public boolean matches(String data) {
+        return data != null && data.startsWith(prefix);
+    }
+
+    /**
+     * @throws IllegalArgumentException if encoded value does not fit into {@value #MAX_DATA_LENGTH} bytes
+     */
+    public String encode(T value) {
+        Writer writer = new Writer();
+        writer.write(version);
+        try {
+            for (FieldCodec field : fields) {
+                field.write(writer, value);
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Can not encode " + value, e);
+        }
+        String payload = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(Arrays.copyOf(writer.buffer, writer.position));
+        // base64 is ASCII, so its length in chars is length in bytes
+        if (prefixLength + payload.length() > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("Encoded " + value + " is longer than " + MAX_DATA_LENGTH + " bytes");
+        }
+        return prefix + payload;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code data} is not produced by this codec or has other version
+     */
+    public T decode(String data) {
+        if (!matches(data)) {
+            throw new IllegalArgumentException("Data '" + data + "' has no prefix '" + prefix + '\'');
+        }
+        Reader reader = new Reader(Base64.getUrlDecoder().decode(data.substring(prefix.length())));
+        byte dataVersion = reader.read();
+        if (dataVersion != version) {
+            throw new IllegalArgumentException("Data '" + data + "' has version " + dataVersion +
+                ", expected " + version
+            );
+        }
+        try {
+            Object value = constructor.invokeExact();
+            for (FieldCodec field : fields) {
+                field.read(reader, value);
+            }
+            return type.cast(value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Can not decode " + data, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CallbackDataCodec{" +
+            "type=" + type +
+            ", prefix='" + prefix + '\'' +
+            ", version=" + version +
+            '}';
+    }
+
+    private static <T extends AccessibleObject> T accessible(T object) {
+        object.setAccessible(true);
+        return object;
+    }
+
+    private enum FieldType {
+        BOOLEAN, INTEGRAL, CHAR, ENUM, STRING
+    }
+
+    private static class FieldCodec {
+        private final Field field;
+        private final FieldType fieldType;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Object[] enumConstants;
+
+        private FieldCodec(Field field) {
+            if (Modifier.isFinal(field.getModifiers())) {
+                throw new IllegalArgumentException("Final field " + field + " can not be decoded");
+            }
+            this.field = field;
+            Class<?> fieldClass = field.getType();
+            if (fieldClass == boolean.class) {
+                fieldType = FieldType.BOOLEAN;
+            } else if (fieldClass == long.class || fieldClass == int.class || fieldClass == short.class ||
+                fieldClass == byte.class) {
+                fieldType = FieldType.INTEGRAL;
+            } else if (fieldClass == char.class) {
+                fieldType = FieldType.CHAR;
+            } else if (fieldClass.isEnum()) {
+                fieldType = FieldType.ENUM;
+            } else if (fieldClass == String.class) {
+                fieldType = FieldType.STRING;
+            } else {
+                throw new IllegalArgumentException("Unsupported type of field " + field);
+            }
+            enumConstants = fieldClass.getEnumConstants();
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                Class<?> handleType = fieldType == FieldType.INTEGRAL ? long.class : fieldClass.isEnum()
+                    ? Object.class : fieldClass;
+                getter = lookup.unreflectGetter(accessible(field))
+                    .asType(MethodType.methodType(handleType, Object.class));
+                setter = MethodHandles.explicitCastArguments(lookup.unreflectSetter(field),
+                    MethodType.methodType(void.class, Object.class, handleType)
+                );
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Field " + field + " is not accessible", e);
+            }
+        }
+
+        private void write(Writer writer, Object value) throws Throwable {
+            switch (fieldType) {
+                case BOOLEAN:
+                    writer.write((byte) ((boolean) getter.invokeExact(value) ? 1 : 0));
+                    break;
+                case INTEGRAL:
+                    long l = (long) getter.invokeExact(value);
+                    writer.writeVarint((l << 1) ^ (l >> 63));
+                    break;
+                case CHAR:
+                    writer.writeVarint((char) getter.invokeExact(value));
+                    break;
+                case ENUM:
+                    Enum<?> e = (Enum<?>) (Object) getter.invokeExact(value);
+                    writer.writeVarint(e == null ? 0 : e.ordinal() + 1);
+                    break;
+                case STRING:
+                    String s = (String) getter.invokeExact(value);
+                    if (s == null) {
+                        writer.writeVarint(0);
+                    } else {
+                        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                        writer.writeVarint(bytes.length + 1);
+                        writer.write(bytes);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported field " + field);
+            }
+        }
+
+        private void read(Reader reader, Object value) throws Throwable {
+            switch (fieldType) {
+                case BOOLEAN:
+                    setter.invokeExact(value, reader.read() != 0);
+                    break;
+                case INTEGRAL:
+                    long l = reader.readVarint();
+                    setter.invokeExact(value, (l >>> 1) ^ -(l & 1));
+                    break;
+                case CHAR:
+                    setter.invokeExact(value, (char) reader.readVarint());
+                    break;
+                case ENUM:
+                    int ordinal = (int) reader.readVarint();
+                    if (ordinal < 0 || ordinal > enumConstants.length) {
+                        throw new IllegalArgumentException("Invalid ordinal " + (ordinal - 1) + " of field " + field);
+                    }
+                    Object constant = ordinal == 0 ? null : enumConstants[ordinal - 1];
+                    setter.invokeExact(value, constant);
+                    break;
+                case STRING:
+                    int length = (int) reader.readVarint();
+                    String s = length == 0 ? null : reader.readString(length - 1);
+                    setter.invokeExact(value, s);
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported field " + field);
+            }
+        }
+    }
+
+    private static class Writer {
+        private final byte[] buffer = new byte[MAX_DATA_LENGTH];
+        private int position;
+
+        private void write(byte b) {
+            ensureCapacity(1);
+            buffer[position++] = b;
+        }
+
+        private void write(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((byte) value);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                throw new IllegalArgumentException("Callback data is longer than " + MAX_DATA_LENGTH + " bytes");
+            }
+        }
+    }
+
+    private static class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte read() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Unexpected end of callback data");
+            }
+            return buffer[position++];
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                byte b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in callback data");
+        }
+
+        private String readString(int length) {
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("Unexpected end of callback data");
+            }
+            String s = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+    }
+}
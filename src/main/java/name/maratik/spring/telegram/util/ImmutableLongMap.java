@@ -0,0 +1,100 @@
+package name.maratik.spring.telegram.util;
+
+import java.util.Map;
+
+/**
+ * Immutable map from primitive {@code long} keys to non-null values with explicit default value.
+ * <p>
+ * Uses open addressing with linear probing over two parallel arrays,
+ * so lookup neither boxes the key nor allocates.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class ImmutableLongMap<V> {
+    private static final int MAX_LOAD_PERCENT = 50;
+
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+    private final V defaultValue;
+
+    private ImmutableLongMap(Map<Long, ? extends V> source, V defaultValue) {
+        int capacity = Integer.highestOneBit(Math.max(1, source.size() * 100 / MAX_LOAD_PERCENT) * 2 - 1);
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = source.size();
+        this.defaultValue = defaultValue;
+        source.forEach((key, value) -> {
+            if (value == null) {
+                throw new NullPointerException("Null value for key " + key);
+            }
+            int index = indexOf(key);
+            keys[index] = key;
+            values[index] = value;
+        });
+    }
+
+    /**
+     * Creates map with content of {@code source}.
+     *
+     * @param source       map to copy
+     * @param defaultValue value returned for absent keys, may be {@code null}
+     */
+    public static <V> ImmutableLongMap<V> copyOf(Map<Long, ? extends V> source, V defaultValue) {
+        return new ImmutableLongMap<>(source, defaultValue);
+    }
+
+    /**
+     * @return value for {@code key} or default value if {@code key} is absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Object value = values[indexOf(key)];
+        return value == null ? defaultValue : (V) value;
+    }
+
+    /**
+     * @return value returned for absent keys
+     */
+    public V getDefaultValue() {
+        return defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return slot which contains {@code key} or empty slot where it should be placed
+     */
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ImmutableLongMap{");
+        boolean first = true;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                sb.append(keys[i]).append('=').append(values[i]);
+                first = false;
+            }
+        }
+        return sb.append("}, defaultValue=").append(defaultValue).toString();
+    }
+}
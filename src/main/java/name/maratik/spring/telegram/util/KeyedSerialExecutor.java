@@ -0,0 +1,345 @@
+package name.maratik.spring.telegram.util;
+
+import name.maratik.spring.telegram.config.OverflowPolicy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor which runs tasks with the same key one after another in submission order,
+ * and tasks with different keys in parallel on the underlying executor.
+ * <p>
+ * Only keys with pending tasks are tracked, and each of them occupies at most one task
+ * in the underlying executor at a time, so handler code does not need any per-key locking.
+ * Number of pending tasks can be bounded, see {@link OverflowPolicy} for what happens when the bound is reached.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class KeyedSerialExecutor {
+    private static final Logger logger = LogManager.getLogger(KeyedSerialExecutor.class);
+    /**
+     * Number of tasks of one key executed before its queue yields the thread to other keys.
+     */
+    private static final int BATCH_SIZE = 16;
+    /**
+     * How long to wait for a permit when queue is full, but no task is pending to be discarded.
+     */
+    private static final long PERMIT_WAIT_MILLIS = 10;
+
+    private final Executor executor;
+    private final ConcurrentMap<Long, SerialQueue> queues = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder droppedTasks = new LongAdder();
+    /**
+     * Submission order of pending tasks across keys, to find the oldest one.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    private final Runnable dropListener;
+
+    /**
+     * Creates executor with unbounded number of pending tasks.
+     *
+     * @param executor executor to run tasks on
+     */
+    public KeyedSerialExecutor(Executor executor) {
+        this(executor, 0, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param executor       executor to run tasks on
+     * @param capacity       maximum number of pending tasks, {@code 0} means unbounded
+     * @param overflowPolicy what to do with a task when there are already {@code capacity} pending tasks
+     */
+    public KeyedSerialExecutor(Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+        this(executor, capacity, overflowPolicy, () -> { });
+    }
+
+    /**
+     * @param executor       executor to run tasks on
+     * @param capacity       maximum number of pending tasks, {@code 0} means unbounded
+     * @param overflowPolicy what to do with a task when there are already {@code capacity} pending tasks
+     * @param dropListener   called each time a task is dropped
+     */
+    public KeyedSerialExecutor(
+        Executor executor, int capacity, OverflowPolicy overflowPolicy, Runnable dropListener
+    ) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        this.executor = executor;
+        this.permits = capacity == 0 ? null : new Semaphore(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.dropListener = dropListener;
+    }
+
+    /**
+     * Schedules {@code task} to be run after all previously submitted tasks with the same {@code key}.
+     */
+    public void execute(long key, Runnable task) {
+        if (permits == null || permits.tryAcquire()) {
+            enqueue(key, task);
+            return;
+        }
+        switch (overflowPolicy) {
+            case DISCARD_OLDEST:
+                replaceOldest(key, task);
+                break;
+            case CALLER_RUNS:
+                if (!runInCaller(key, task)) {
+                    // key is busy, wait to keep tasks of the key in order
+                    awaitAndEnqueue(key, task);
+                }
+                break;
+            case BLOCK:
+            default:
+                awaitAndEnqueue(key, task);
+        }
+    }
+
+    /**
+     * Schedules {@code task} which has no ordering requirements.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * @return number of keys which have pending or running tasks
+     */
+    public int getActiveKeys() {
+        return queues.size();
+    }
+
+    /**
+     * @return number of tasks dropped because of queue overflow or rejection by the underlying executor
+     */
+    public long getDroppedTasks() {
+        return droppedTasks.sum();
+    }
+
+    private void drop() {
+        droppedTasks.increment();
+        dropListener.run();
+    }
+
+    private void awaitAndEnqueue(long key, Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for queue capacity, dropping task for key {}", key);
+            drop();
+            return;
+        }
+        enqueue(key, task);
+    }
+
+    private void enqueue(long key, Runnable task) {
+        Task pendingTask = new Task(sequence.getAndIncrement(), task);
+        while (true) {
+            SerialQueue queue = queues.computeIfAbsent(key, SerialQueue::new);
+            boolean schedule;
+            synchronized (queue) {
+                if (queue.closed) {
+                    continue;
+                }
+                queue.pending.add(pendingTask);
+                schedule = !queue.scheduled;
+                queue.scheduled = true;
+            }
+            if (schedule) {
+                try {
+                    executor.execute(queue);
+                } catch (RejectedExecutionException e) {
+                    int discarded = queue.discard();
+                    logger.error("Executor rejected queue for key {}, dropping {} tasks", key, discarded, e);
+                    for (int i = 0; i < discarded; i++) {
+                        drop();
+                    }
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Drops the oldest pending task of any key, passing its permit to {@code task}.
+     */
+    private void replaceOldest(long key, Runnable task) {
+        while (true) {
+            if (discardOldest()) {
+                drop();
+                enqueue(key, task);
+                return;
+            }
+            // nothing is pending, so tasks are being taken by the executor and their permits are released soon
+            try {
+                if (permits.tryAcquire(PERMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    enqueue(key, task);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while waiting for queue capacity, dropping task for key {}", key);
+                drop();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Scans all keys, so it is linear in number of active keys, which is bounded by capacity.
+     *
+     * @return {@code false} if there are no pending tasks
+     */
+    private boolean discardOldest() {
+        while (true) {
+            SerialQueue oldest = null;
+            long oldestSequence = Long.MAX_VALUE;
+            for (SerialQueue queue : queues.values()) {
+                long headSequence = queue.headSequence();
+                if (headSequence < oldestSequence) {
+                    oldest = queue;
+                    oldestSequence = headSequence;
+                }
+            }
+            if (oldest == null) {
+                return false;
+            }
+            if (oldest.discardHead(oldestSequence)) {
+                logger.debug("Queue is full, dropping oldest task for key {}", oldest.key);
+                return true;
+            }
+        }
+    }
+
+    private boolean runInCaller(long key, Runnable task) {
+        SerialQueue queue = new SerialQueue(key);
+        queue.scheduled = true;
+        if (queues.putIfAbsent(key, queue) != null) {
+            return false;
+        }
+        runTask(key, task);
+        queue.run();
+        return true;
+    }
+
+    private static void runTask(long key, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.error("Task for key {} failed", key, e);
+        }
+    }
+
+    private class SerialQueue implements Runnable {
+        private final long key;
+        private final Queue<Task> pending = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+
+        private SerialQueue(long key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            do {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    Runnable task = poll();
+                    if (task == null) {
+                        return;
+                    }
+                    runTask(key, task);
+                }
+            } while (!reschedule());
+        }
+
+        private Runnable poll() {
+            Task task;
+            synchronized (this) {
+                task = pending.poll();
+                if (task == null) {
+                    closed = true;
+                    queues.remove(key, this);
+                    return null;
+                }
+            }
+            if (permits != null) {
+                permits.release();
+            }
+            return task.runnable;
+        }
+
+        /**
+         * @return sequence of the oldest pending task or {@link Long#MAX_VALUE} if nothing is pending
+         */
+        private synchronized long headSequence() {
+            Task head = pending.peek();
+            return head == null ? Long.MAX_VALUE : head.sequence;
+        }
+
+        /**
+         * Removes the oldest pending task without releasing its permit, if it is still the one with {@code sequence}.
+         */
+        private synchronized boolean discardHead(long sequence) {
+            Task head = pending.peek();
+            if (head == null || head.sequence != sequence) {
+                return false;
+            }
+            pending.poll();
+            return true;
+        }
+
+        /**
+         * Removes all pending tasks and releases their permits.
+         *
+         * @return number of removed tasks
+         */
+        private int discard() {
+            int discarded;
+            synchronized (this) {
+                closed = true;
+                queues.remove(key, this);
+                discarded = pending.size();
+                pending.clear();
+            }
+            if (permits != null) {
+                permits.release(discarded);
+            }
+            return discarded;
+        }
+
+        private boolean reschedule() {
+            try {
+                executor.execute(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                logger.debug("Executor rejected queue for key {}, draining in place", key);
+                return false;
+            }
+        }
+    }
+
+    private static class Task {
+        private final long sequence;
+        private final Runnable runnable;
+
+        private Task(long sequence, Runnable runnable) {
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package name.maratik.spring.telegram.util;
+
+import java.util.Arrays;
+
+/**
+ * Trie which finds value bound to the longest registered prefix of a string.
+ * Lookup cost depends on the length of the string, not on the number of registered prefixes.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class PrefixMatcher<V> {
+    private final Node<V> root = new Node<>();
+
+    /**
+     * Binds {@code value} to {@code prefix}, replacing previously bound value.
+     */
+    public void put(String prefix, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.getOrCreateChild(prefix.charAt(i));
+        }
+        node.value = value;
+    }
+
+    /**
+     * Finds value bound to the longest prefix of {@code s}.
+     *
+     * @return found value or {@code null} if no registered prefix matches
+     */
+    public V findLongestPrefix(CharSequence s) {
+        return findLongestPrefix(s, 0, s.length());
+    }
+
+    /**
+     * Finds value bound to the longest prefix of {@code s.subSequence(start, end)}
+     * without creating the subsequence.
+     *
+     * @return found value or {@code null} if no registered prefix matches
+     */
+    public V findLongestPrefix(CharSequence s, int start, int end) {
+        Node<V> node = root;
+        V result = node.value;
+        for (int i = start; i < end; i++) {
+            node = node.getChild(s.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                result = node.value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds value bound exactly to {@code s.subSequence(start, end)} without creating the subsequence.
+     *
+     * @return found value or {@code null} if it is not registered
+     */
+    public V get(CharSequence s, int start, int end) {
+        Node<V> node = root;
+        for (int i = start; i < end && node != null; i++) {
+            node = node.getChild(s.charAt(i));
+        }
+        return node == null ? null : node.value;
+    }
+
+    private static class Node<V> {
+        private static final char[] NO_KEYS = new char[0];
+
+        private char[] keys = NO_KEYS;
+        private Node<V>[] children = newChildren(0);
+        private V value;
+
+        private Node<V> getChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node<V> getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertionPoint = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node<V>[] newChildren = newChildren(keys.length + 1);
+            System.arraycopy(keys, 0, newKeys, 0, insertionPoint);
+            System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+            System.arraycopy(keys, insertionPoint, newKeys, insertionPoint + 1, keys.length - insertionPoint);
+            System.arraycopy(children, insertionPoint, newChildren, insertionPoint + 1,
+                children.length - insertionPoint
+            );
+            Node<V> child = new Node<>();
+            newKeys[insertionPoint] = c;
+            newChildren[insertionPoint] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newChildren(int size) {
+            return (Node<V>[]) new Node<?>[size];
+        }
+    }
+}
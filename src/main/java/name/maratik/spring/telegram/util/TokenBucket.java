@@ -0,0 +1,88 @@
+package name.maratik.spring.telegram.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter. Time is passed explicitly as {@link System#nanoTime()} values.
+ * <p>
+ * Not thread safe, intended to be confined to a single scheduling thread.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates full bucket.
+     *
+     * @param ratePerSecond tokens added per second
+     * @param capacity      maximum number of tokens, i.e. allowed burst
+     * @param nowNanos      current time
+     */
+    public TokenBucket(double ratePerSecond, double capacity, long nowNanos) {
+        if (ratePerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid rate " + ratePerSecond + " or capacity " + capacity);
+        }
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = nowNanos;
+    }
+
+    /**
+     * Takes one token if available.
+     *
+     * @return {@code true} if token was taken
+     */
+    public boolean tryAcquire(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1 && !isHeld(nowNanos)) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return nanoseconds until one token becomes available, {@code 0} if it is available now
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        refill(nowNanos);
+        long heldNanos = Math.max(0, lastRefill - nowNanos);
+        return heldNanos + (tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /**
+     * Stops refilling until {@code untilNanos} and leaves at most one token, which can not be taken before it.
+     * Used to wait out the server side limit, e.g. {@code retry_after} of telegram.
+     */
+    public void holdUntil(long untilNanos) {
+        if (untilNanos - lastRefill > 0) {
+            tokens = Math.min(tokens, 1);
+            lastRefill = untilNanos;
+        }
+    }
+
+    /**
+     * @return {@code true} if bucket is full, so it behaves as newly created one
+     */
+    public boolean isFull(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= capacity && !isHeld(nowNanos);
+    }
+
+    private boolean isHeld(long nowNanos) {
+        return lastRefill - nowNanos > 0;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefill = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package name.maratik.spring.telegram.util;
+
+import name.maratik.spring.telegram.config.UpdateIdWatermarkStore;
+
+import java.util.Arrays;
+import java.util.OptionalInt;
+
+/**
+ * Filter of redelivered updates. Remembers which of the recent update ids were seen in a ring bitset,
+ * so a check takes constant time and allocates nothing.
+ * <p>
+ * Ids are compared by difference, so they may overflow. Ids older than the window are considered seen.
+ * If watermark store is set, the completed watermark, the highest id such that every id up to it is
+ * {@link #complete(int) completed}, is loaded on start and stored periodically and on {@link #close()},
+ * so ids up to it are considered seen after restart.
+ * Updates which are queued, in flight or dropped keep the watermark below them, unless they fall out of the window.
+ * Ids below the highest seen one which never came, i.e. gaps in the update id sequence, do not hold the watermark.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class UpdateIdFilter implements AutoCloseable {
+    private static final int STORE_INTERVAL = 100;
+
+    private final long[] seen;
+    private final long[] completed;
+    private final int mask;
+    private final UpdateIdWatermarkStore watermarkStore;
+    private boolean started;
+    private int highest;
+    private int completedWatermark;
+    private int storedWatermark;
+
+    /**
+     * @param window         number of recent ids to remember, rounded up to power of two
+     * @param watermarkStore storage of the completed watermark, may be {@code null}
+     */
+    public UpdateIdFilter(int window, UpdateIdWatermarkStore watermarkStore) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Non-positive window: " + window);
+        }
+        int size = Math.max(Long.SIZE, Integer.highestOneBit(window - 1) << 1);
+        seen = new long[size / Long.SIZE];
+        completed = new long[size / Long.SIZE];
+        mask = size - 1;
+        this.watermarkStore = watermarkStore;
+        OptionalInt watermark = watermarkStore == null ? OptionalInt.empty() : watermarkStore.load();
+        if (watermark.isPresent()) {
+            started = true;
+            highest = watermark.getAsInt();
+            completedWatermark = highest;
+            storedWatermark = highest;
+            Arrays.fill(seen, -1L);
+            Arrays.fill(completed, -1L);
+        }
+    }
+
+    /**
+     * @return {@code true} if update with {@code updateId} was not seen before and should be processed,
+     * then {@link #complete(int)} should be called when processing finishes
+     */
+    public synchronized boolean accept(int updateId) {
+        if (!started) {
+            started = true;
+            highest = updateId;
+            completedWatermark = updateId - 1;
+            storedWatermark = completedWatermark;
+            mark(seen, updateId);
+            return true;
+        }
+        int distance = updateId - highest;
+        if (distance <= 0) {
+            if (-distance > mask || isMarked(seen, updateId)) {
+                return false;
+            }
+            mark(seen, updateId);
+            return true;
+        }
+        if (distance > mask) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(completed, 0);
+        } else {
+            for (int id = highest + 1; id != updateId; id++) {
+                unmark(seen, id);
+                unmark(completed, id);
+            }
+            unmark(completed, updateId);
+        }
+        highest = updateId;
+        mark(seen, updateId);
+        // ids out of the window are considered seen anyway
+        if (highest - mask - 1 - completedWatermark > 0) {
+            completedWatermark = highest - mask - 1;
+            advanceCompletedWatermark();
+        }
+        return true;
+    }
+
+    /**
+     * Marks accepted update with {@code updateId} as processed.
+     */
+    public void complete(int updateId) {
+        int watermarkToStore;
+        synchronized (this) {
+            if (updateId - completedWatermark <= 0 || highest - updateId > mask) {
+                return;
+            }
+            mark(completed, updateId);
+            advanceCompletedWatermark();
+            if (watermarkStore == null || completedWatermark - storedWatermark < STORE_INTERVAL) {
+                return;
+            }
+            storedWatermark = completedWatermark;
+            watermarkToStore = completedWatermark;
+        }
+        watermarkStore.store(watermarkToStore);
+    }
+
+    /**
+     * Stores the completed watermark if watermark store is set.
+     */
+    @Override
+    public void close() {
+        int watermarkToStore;
+        synchronized (this) {
+            if (watermarkStore == null || !started) {
+                return;
+            }
+            storedWatermark = completedWatermark;
+            watermarkToStore = completedWatermark;
+        }
+        watermarkStore.store(watermarkToStore);
+    }
+
+    /**
+     * Moves the watermark over completed ids and ids which were never seen. Should be called with lock held.
+     */
+    private void advanceCompletedWatermark() {
+        while (completedWatermark != highest
+            && (isMarked(completed, completedWatermark + 1) || !isMarked(seen, completedWatermark + 1))) {
+            completedWatermark++;
+        }
+    }
+
+    private boolean isMarked(long[] bits, int updateId) {
+        int bit = updateId & mask;
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private void mark(long[] bits, int updateId) {
+        int bit = updateId & mask;
+        bits[bit >>> 6] |= 1L << bit;
+    }
+
+    private void unmark(long[] bits, int updateId) {
+        int bit = updateId & mask;
+        bits[bit >>> 6] &= ~(1L << bit);
+    }
+}
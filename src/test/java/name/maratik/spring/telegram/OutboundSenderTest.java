@@ -0,0 +1,152 @@
+package name.maratik.spring.telegram;
+
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.telegram.telegrambots.ApiContextInitializer;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends methods through {@link OutboundSender} to a stub client, which records moments of sending.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class OutboundSenderTest {
+    private static final long TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @BeforeClass
+    public static void initApiContext() {
+        ApiContextInitializer.init();
+    }
+
+    @Test
+    public void chatRateLimitKeepsOrder() throws Exception {
+        StubSender client = new StubSender(5);
+        try (OutboundSender sender = new OutboundSender(client, 1000, 10, 4)) {
+            for (int i = 0; i < 5; i++) {
+                sender.send(1, message(1, "m" + i));
+            }
+            client.await();
+        }
+        assertEquals(Arrays.asList("m0", "m1", "m2", "m3", "m4"), client.texts());
+        // burst of one, then one per 100 ms
+        assertSpanAtLeast(client, TimeUnit.MILLISECONDS.toNanos(400));
+    }
+
+    @Test
+    public void globalRateLimitAppliesToAllChats() throws Exception {
+        StubSender client = new StubSender(30);
+        try (OutboundSender sender = new OutboundSender(client, 10, 1000, 4)) {
+            for (int chatId = 0; chatId < 30; chatId++) {
+                sender.send(chatId, message(chatId, "m" + chatId));
+            }
+            client.await();
+        }
+        // burst of ten, then one per 100 ms
+        assertSpanAtLeast(client, TimeUnit.MILLISECONDS.toNanos(1900));
+        assertEquals(30, client.texts().size());
+    }
+
+    @Test
+    public void tooManyRequestsHoldsChatAndRetriesFirst() throws Exception {
+        StubSender client = new StubSender(3, "m0");
+        OutboundSender sender = new OutboundSender(client, 1000, 1000, 4);
+        try {
+            sender.send(1, message(1, "m0"));
+            sender.send(1, message(1, "m1"));
+            client.await();
+        } finally {
+            sender.close();
+        }
+        assertEquals(Arrays.asList("m0", "m0", "m1"), client.texts());
+        long held = client.sentAt.get(1) - client.sentAt.get(0);
+        assertTrue("Retried after " + held + " ns", held >= TimeUnit.SECONDS.toNanos(1) - TOLERANCE_NANOS);
+        assertEquals(2, sender.getSentCount());
+        assertEquals(0, sender.getFailedCount());
+    }
+
+    @Test
+    public void sendAfterCloseFails() {
+        StubSender client = new StubSender(0);
+        OutboundSender sender = new OutboundSender(client, 1000, 1000, 1);
+        sender.close();
+        sender.send(1, message(1, "late"));
+        assertEquals(1, sender.getFailedCount());
+        assertEquals(0, sender.getQueueDepth());
+        assertTrue(client.texts().isEmpty());
+    }
+
+    private static void assertSpanAtLeast(StubSender client, long expectedNanos) {
+        long span = client.sentAt.get(client.sentAt.size() - 1) - client.sentAt.get(0);
+        assertTrue("Sent in " + span + " ns", span >= expectedNanos - TOLERANCE_NANOS);
+    }
+
+    private static SendMessage message(long chatId, String text) {
+        return new SendMessage(chatId, text);
+    }
+
+    /**
+     * Records sent messages, answers {@code 429} with {@code retry_after} of one second to the first attempt
+     * of messages with given texts.
+     */
+    private static class StubSender extends DefaultAbsSender {
+        private final CountDownLatch latch;
+        private final Set<String> tooManyRequests = ConcurrentHashMap.newKeySet();
+        private final List<String> texts = new ArrayList<>();
+        private final List<Long> sentAt = new ArrayList<>();
+
+        private StubSender(int expected, String... tooManyRequests) {
+            super(new DefaultBotOptions());
+            latch = new CountDownLatch(expected);
+            this.tooManyRequests.addAll(Arrays.asList(tooManyRequests));
+        }
+
+        @Override
+        public String getBotToken() {
+            return "token";
+        }
+
+        @Override
+        public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method)
+            throws TelegramApiException {
+            String text = ((SendMessage) method).getText();
+            synchronized (this) {
+                texts.add(text);
+                sentAt.add(System.nanoTime());
+            }
+            latch.countDown();
+            if (tooManyRequests.remove(text)) {
+                throw new TelegramApiRequestException("Error sending message", new JSONObject(
+                    "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 1\","
+                        + "\"parameters\":{\"retry_after\":1}}"
+                ));
+            }
+            return null;
+        }
+
+        private void await() throws InterruptedException {
+            assertTrue("Not all methods are sent", latch.await(10, TimeUnit.SECONDS));
+        }
+
+        private synchronized List<String> texts() {
+            return new ArrayList<>(texts);
+        }
+    }
+}
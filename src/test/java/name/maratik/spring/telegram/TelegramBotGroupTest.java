@@ -0,0 +1,66 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.config.OverflowPolicy;
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+import name.maratik.spring.telegram.config.TelegramBotGroupBuilder;
+import name.maratik.spring.telegram.config.TelegramBotMetrics;
+import name.maratik.spring.telegram.config.TelegramBotType;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.telegram.telegrambots.ApiContextInitializer;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class TelegramBotGroupTest {
+    @BeforeClass
+    public static void initApiContext() {
+        ApiContextInitializer.init();
+    }
+
+    @Test
+    public void doesNotModifyBotBuilders() {
+        TelegramBotBuilder shop = new TelegramBotBuilder("shop_bot", "token1").name("shop");
+        TelegramBotBuilder news = new TelegramBotBuilder("news_bot", "token2").name("news");
+        TelegramBotGroupBuilder groupBuilder = new TelegramBotGroupBuilder()
+            .maxThreads(2)
+            .metrics(new TelegramBotMetrics() { })
+            .bot(TelegramBotType.LONG_POLLING, shop)
+            .bot(TelegramBotType.LONG_POLLING, news);
+        try (TelegramBotGroup group = new TelegramBotGroup(groupBuilder, new TelegramBotsApi(),
+            new DefaultListableBeanFactory()
+        )) {
+            assertEquals(2, group.getServices().size());
+            assertTrue(group.getService("shop").isPresent());
+            assertTrue(group.getService("news").isPresent());
+        }
+        assertNull(shop.getUpdateExecutor());
+        assertNull(news.getUpdateExecutor());
+        assertSame(TelegramBotMetrics.NOOP, shop.getMetrics());
+    }
+
+    @Test
+    public void rejectsBotWithOwnExecutor() {
+        try (UpdateExecutor own = new UpdateExecutor(null, false, 1, 0, OverflowPolicy.BLOCK,
+            TelegramBotMetrics.NOOP
+        )) {
+            TelegramBotGroupBuilder groupBuilder = new TelegramBotGroupBuilder()
+                .bot(TelegramBotType.LONG_POLLING, new TelegramBotBuilder("shop_bot", "token").updateExecutor(own));
+            try {
+                new TelegramBotGroup(groupBuilder, new TelegramBotsApi(), new DefaultListableBeanFactory()).close();
+                fail("Own executor of bot is ignored");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
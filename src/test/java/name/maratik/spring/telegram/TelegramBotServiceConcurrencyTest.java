@@ -0,0 +1,167 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.annotation.TelegramBot;
+import name.maratik.spring.telegram.annotation.TelegramCommand;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.telegram.telegrambots.ApiContextInitializer;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Registers and removes handlers while other threads dispatch updates.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class TelegramBotServiceConcurrencyTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int CHURN_COMMANDS = 5;
+    private static final int DISPATCHERS = 4;
+    private static final int REGISTRATIONS = 2000;
+
+    @BeforeClass
+    public static void initApiContext() {
+        ApiContextInitializer.init();
+    }
+
+    /**
+     * Every update should see either all handlers of a bean or none of them, and handlers of other beans
+     * should never disappear.
+     */
+    @Test
+    public void dispatchSeesWholeSnapshots() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        TestService service = new TestService(beanFactory);
+        TelegramBeanPostProcessor postProcessor = new TelegramBeanPostProcessor(service, beanFactory);
+        bind(postProcessor, new StableController(), "stableController");
+        service.afterSingletonsInstantiated();
+        Update stable = message("/stable");
+        Update help = message("/help");
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong dispatched = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(DISPATCHERS);
+        List<Future<?>> dispatchers = new ArrayList<>();
+        for (int i = 0; i < DISPATCHERS; i++) {
+            dispatchers.add(executor.submit(() -> {
+                while (running.get()) {
+                    assertEquals("stable", text(service.updateProcess(stable)));
+                    String helpText = text(service.updateProcess(help));
+                    int churnCommands = 0;
+                    for (int command = 1; command <= CHURN_COMMANDS; command++) {
+                        if (helpText.contains("/churn" + command + ' ')) {
+                            churnCommands++;
+                        }
+                    }
+                    assertTrue("Partially registered handlers: " + helpText,
+                        churnCommands == 0 || churnCommands == CHURN_COMMANDS
+                    );
+                    dispatched.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        try {
+            for (int i = 0; i < REGISTRATIONS; i++) {
+                ChurnController churnController = new ChurnController();
+                bind(postProcessor, churnController, "churnController");
+                service.removeHandlers(churnController);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+        }
+        for (Future<?> dispatcher : dispatchers) {
+            dispatcher.get();
+        }
+        assertTrue(dispatched.get() > 0);
+    }
+
+    private static void bind(TelegramBeanPostProcessor postProcessor, Object bean, String beanName) {
+        postProcessor.postProcessBeforeInitialization(bean, beanName);
+        postProcessor.postProcessAfterInitialization(bean, beanName);
+    }
+
+    private static Update message(String text) throws IOException {
+        return OBJECT_MAPPER.readValue("{\"update_id\":1,\"message\":{\"message_id\":1,\"date\":0," +
+            "\"chat\":{\"id\":42,\"type\":\"private\"},\"from\":{\"id\":42,\"first_name\":\"User\",\"is_bot\":false}," +
+            "\"text\":" + OBJECT_MAPPER.writeValueAsString(text) + "}}", Update.class
+        );
+    }
+
+    private static String text(Optional<BotApiMethod<?>> result) {
+        return result.map(method -> ((SendMessage) method).getText()).orElse(null);
+    }
+
+    @TelegramBot
+    public static class StableController {
+        @TelegramCommand(commands = "/stable", description = "Stable")
+        public SendMessage stable(long userId) {
+            return new SendMessage(userId, "stable");
+        }
+    }
+
+    @TelegramBot
+    public static class ChurnController {
+        @TelegramCommand(commands = "/churn1", description = "Churn")
+        public SendMessage churn1(long userId) {
+            return new SendMessage(userId, "churn1");
+        }
+
+        @TelegramCommand(commands = "/churn2", description = "Churn")
+        public SendMessage churn2(long userId) {
+            return new SendMessage(userId, "churn2");
+        }
+
+        @TelegramCommand(commands = "/churn3", description = "Churn")
+        public SendMessage churn3(long userId) {
+            return new SendMessage(userId, "churn3");
+        }
+
+        @TelegramCommand(commands = "/churn4", description = "Churn")
+        public SendMessage churn4(long userId) {
+            return new SendMessage(userId, "churn4");
+        }
+
+        @TelegramCommand(commands = "/churn5", description = "Churn")
+        public SendMessage churn5(long userId) {
+            return new SendMessage(userId, "churn5");
+        }
+    }
+
+    private static class TestService extends TelegramBotService {
+        private TestService(ConfigurableBeanFactory configurableBeanFactory) {
+            super(new TelegramBotsApi(), configurableBeanFactory);
+        }
+
+        @Override
+        public DefaultAbsSender getClient() {
+            return null;
+        }
+
+        @Override
+        public String getBotUsername() {
+            return "TestBot";
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package name.maratik.spring.telegram;
+
+import name.maratik.spring.telegram.annotation.TelegramBot;
+import name.maratik.spring.telegram.annotation.TelegramCommand;
+import name.maratik.spring.telegram.config.TelegramBotBuilder;
+import name.maratik.spring.telegram.config.UpdateIdWatermarkStore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.telegram.telegrambots.ApiContextInitializer;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that id of update is completed only when asynchronous result of its handler is sent.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class TelegramBotServiceUpdateIdTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @BeforeClass
+    public static void initApiContext() {
+        ApiContextInitializer.init();
+    }
+
+    @Test
+    public void completesUpdateWhenAsyncResultIsSent() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        InMemoryStore store = new InMemoryStore();
+        TestService service = new TestService(beanFactory, store);
+        TelegramBeanPostProcessor postProcessor = new TelegramBeanPostProcessor(service, beanFactory);
+        AsyncController controller = new AsyncController();
+        postProcessor.postProcessBeforeInitialization(controller, "asyncController");
+        postProcessor.postProcessAfterInitialization(controller, "asyncController");
+        service.afterSingletonsInstantiated();
+
+        assertFalse(service.updateProcess(message(1, "/async")).isPresent());
+        assertTrue(service.updateProcess(message(2, "/sync")).isPresent());
+        assertFalse("Redelivered update", service.updateProcess(message(1, "/async")).isPresent());
+        assertEquals(1, controller.asyncCalls);
+        assertEquals(OptionalInt.of(0), storedWatermark(service, store));
+
+        controller.reply.complete(new SendMessage(42L, "async"));
+        assertEquals(1, service.sent.size());
+        assertEquals(OptionalInt.of(0), storedWatermark(service, store));
+
+        service.sent.get(0).run();
+        assertEquals(OptionalInt.of(2), storedWatermark(service, store));
+    }
+
+    private static OptionalInt storedWatermark(TelegramBotService service, InMemoryStore store) {
+        // close stores the completed watermark
+        service.close();
+        return store.watermark;
+    }
+
+    private static Update message(int updateId, String text) throws IOException {
+        return OBJECT_MAPPER.readValue("{\"update_id\":" + updateId + ",\"message\":{\"message_id\":1,\"date\":0," +
+            "\"chat\":{\"id\":42,\"type\":\"private\"},\"from\":{\"id\":42,\"first_name\":\"User\",\"is_bot\":false}," +
+            "\"text\":" + OBJECT_MAPPER.writeValueAsString(text) + "}}", Update.class
+        );
+    }
+
+    @TelegramBot
+    public static class AsyncController {
+        private final CompletableFuture<SendMessage> reply = new CompletableFuture<>();
+        private int asyncCalls;
+
+        @TelegramCommand(commands = "/async", description = "Async")
+        public CompletableFuture<SendMessage> async() {
+            asyncCalls++;
+            return reply;
+        }
+
+        @TelegramCommand(commands = "/sync", description = "Sync")
+        public SendMessage sync(long userId) {
+            return new SendMessage(userId, "sync");
+        }
+    }
+
+    private static class InMemoryStore implements UpdateIdWatermarkStore {
+        private OptionalInt watermark = OptionalInt.empty();
+
+        @Override
+        public OptionalInt load() {
+            return watermark;
+        }
+
+        @Override
+        public void store(int updateId) {
+            watermark = OptionalInt.of(updateId);
+        }
+    }
+
+    /**
+     * Collects completion callbacks of asynchronous sends instead of sending.
+     */
+    private static class TestService extends TelegramBotService {
+        private final List<Runnable> sent = new ArrayList<>();
+
+        private TestService(ConfigurableBeanFactory configurableBeanFactory, UpdateIdWatermarkStore store) {
+            super(new TelegramBotsApi(), configurableBeanFactory);
+            applyOptions(new TelegramBotBuilder()
+                .updateIdWindow(64)
+                .updateIdWatermarkStore(store)
+            );
+        }
+
+        @Override
+        protected void sendAsync(Update update, BotApiMethod<?> method, Runnable done) {
+            sent.add(done);
+        }
+
+        @Override
+        public DefaultAbsSender getClient() {
+            return null;
+        }
+
+        @Override
+        public String getBotUsername() {
+            return "TestBot";
+        }
+    }
+}
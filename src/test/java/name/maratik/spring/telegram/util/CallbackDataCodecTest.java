@@ -0,0 +1,226 @@
+package name.maratik.spring.telegram.util;
+
+import name.maratik.spring.telegram.annotation.TelegramCallbackData;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class CallbackDataCodecTest {
+    @Test
+    public void roundTripsIntegralExtremes() {
+        CallbackDataCodec<Numbers> codec = CallbackDataCodec.of(Numbers.class);
+        Numbers numbers = new Numbers();
+        numbers.l = Long.MIN_VALUE;
+        numbers.i = Integer.MIN_VALUE;
+        numbers.s = Short.MIN_VALUE;
+        numbers.b = Byte.MIN_VALUE;
+        numbers.c = Character.MAX_VALUE;
+        numbers.flag = true;
+        assertEquals(numbers, codec.decode(codec.encode(numbers)));
+
+        numbers.l = Long.MAX_VALUE;
+        numbers.i = Integer.MAX_VALUE;
+        numbers.s = Short.MAX_VALUE;
+        numbers.b = Byte.MAX_VALUE;
+        numbers.c = Character.MIN_VALUE;
+        numbers.flag = false;
+        assertEquals(numbers, codec.decode(codec.encode(numbers)));
+
+        numbers.l = -1;
+        numbers.i = -1;
+        numbers.s = 0;
+        numbers.b = 1;
+        assertEquals(numbers, codec.decode(codec.encode(numbers)));
+    }
+
+    @Test
+    public void roundTripsEnumsAndStrings() {
+        CallbackDataCodec<Choice> codec = CallbackDataCodec.of(Choice.class);
+        Choice choice = new Choice();
+        for (Color color : Color.values()) {
+            choice.color = color;
+            choice.label = "\u041f\u0440\u0438\u0432\u0435\u0442, \u4e16\u754c \ud83d\ude42";
+            assertEquals(choice, codec.decode(codec.encode(choice)));
+        }
+
+        choice.color = null;
+        choice.label = null;
+        Choice decoded = codec.decode(codec.encode(choice));
+        assertNull(decoded.color);
+        assertNull(decoded.label);
+
+        choice.label = "";
+        assertEquals("", codec.decode(codec.encode(choice)).label);
+    }
+
+    @Test
+    public void encodesPrefixAndChecksIt() {
+        CallbackDataCodec<Label> codec = CallbackDataCodec.of(Label.class);
+        Label label = new Label();
+        label.text = "a";
+        String data = codec.encode(label);
+        assertTrue(data.startsWith("l:"));
+        assertTrue(codec.matches(data));
+        assertFalse(codec.matches("other:" + data.substring(2)));
+        assertFalse(codec.matches(null));
+        try {
+            codec.decode("other:" + data.substring(2));
+            fail("Decoded data with other prefix");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void rejectsOtherVersion() {
+        Label label = new Label();
+        label.text = "a";
+        String data = CallbackDataCodec.of(Label.class).encode(label);
+        try {
+            CallbackDataCodec.of(LabelV2.class).decode(data);
+            fail("Decoded data of other version");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void limitsDataTo64Bytes() {
+        CallbackDataCodec<Label> codec = CallbackDataCodec.of(Label.class);
+        Label label = new Label();
+        // "l:" and base64 of version, length and 44 bytes of text take 64 bytes
+        label.text = repeat('a', 44);
+        assertEquals(CallbackDataCodec.MAX_DATA_LENGTH, codec.encode(label).length());
+        label.text = repeat('a', 45);
+        assertTooLong(codec, label);
+        // 23 two byte chars take 46 bytes
+        label.text = repeat('\u0436', 23);
+        assertTooLong(codec, label);
+    }
+
+    @Test
+    public void countsPrefixInBytes() {
+        CallbackDataCodec<CyrillicLabel> codec = CallbackDataCodec.of(CyrillicLabel.class);
+        CyrillicLabel label = new CyrillicLabel();
+        label.text = repeat('a', 38);
+        // 7 chars of prefix and 54 chars of payload fit into 64 chars, but prefix takes 13 bytes
+        assertEquals(13, codec.getPrefix().getBytes(StandardCharsets.UTF_8).length);
+        try {
+            codec.encode(label);
+            fail("Encoded data longer than 64 bytes");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        label.text = repeat('a', 33);
+        String data = codec.encode(label);
+        assertTrue(data.getBytes(StandardCharsets.UTF_8).length <= CallbackDataCodec.MAX_DATA_LENGTH);
+        assertEquals(label.text, codec.decode(data).text);
+    }
+
+    private static void assertTooLong(CallbackDataCodec<Label> codec, Label label) {
+        try {
+            codec.encode(label);
+            fail("Encoded data longer than 64 bytes: " + label.text);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @TelegramCallbackData("n")
+    private static class Numbers {
+        private long l;
+        private int i;
+        private short s;
+        private byte b;
+        private char c;
+        private boolean flag;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Numbers)) {
+                return false;
+            }
+            Numbers numbers = (Numbers) o;
+            return l == numbers.l && i == numbers.i && s == numbers.s && b == numbers.b && c == numbers.c &&
+                flag == numbers.flag;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(l);
+        }
+
+        @Override
+        public String toString() {
+            return "Numbers{l=" + l + ", i=" + i + ", s=" + s + ", b=" + b + ", c=" + (int) c + ", flag=" + flag + '}';
+        }
+    }
+
+    private enum Color {
+        RED, GREEN, BLUE
+    }
+
+    @TelegramCallbackData("c")
+    private static class Choice {
+        private Color color;
+        private String label;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Choice)) {
+                return false;
+            }
+            Choice choice = (Choice) o;
+            return color == choice.color && (label == null ? choice.label == null : label.equals(choice.label));
+        }
+
+        @Override
+        public int hashCode() {
+            return color == null ? 0 : color.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Choice{color=" + color + ", label='" + label + "'}";
+        }
+    }
+
+    @TelegramCallbackData("l")
+    private static class Label {
+        private String text;
+    }
+
+    @TelegramCallbackData(value = "l", version = 2)
+    private static class LabelV2 {
+        private String text;
+    }
+
+    @TelegramCallbackData("\u043a\u043d\u043e\u043f\u043a\u0430")
+    private static class CyrillicLabel {
+        private String text;
+    }
+}
@@ -0,0 +1,173 @@
+package name.maratik.spring.telegram.util;
+
+import name.maratik.spring.telegram.config.OverflowPolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs tasks on a single thread, which is held by a gate task of key {@code 0}, so submitted tasks stay pending.
+ *
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class KeyedSerialExecutorTest {
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final AtomicInteger dropped = new AtomicInteger();
+    private ExecutorService threads;
+
+    @Before
+    public void setUp() {
+        threads = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void keepsOrderOfKey() throws Exception {
+        threads.shutdown();
+        threads = Executors.newFixedThreadPool(4);
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(threads);
+        int tasks = 1000;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            int task = i;
+            executor.execute(1, () -> {
+                order.add(task);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < tasks; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void blockWaitsForCapacity() throws Exception {
+        KeyedSerialExecutor executor = executor(2, OverflowPolicy.BLOCK);
+        closeGate(executor);
+        executor.execute(1, task("a1"));
+        executor.execute(2, task("b1"));
+        ExecutorService submitter = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = submitter.submit(() -> executor.execute(3, task("c1")));
+            try {
+                blocked.get(100, TimeUnit.MILLISECONDS);
+                fail("Submission should wait for capacity");
+            } catch (TimeoutException e) {
+                // expected
+            }
+            gate.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            submitter.shutdown();
+        }
+        awaitExecuted(4);
+        assertEquals(Arrays.asList("gate", "a1", "b1", "c1"), executed);
+        assertEquals(0, executor.getDroppedTasks());
+        assertEquals(0, dropped.get());
+    }
+
+    @Test
+    public void callerRunsTaskOfIdleKey() throws Exception {
+        KeyedSerialExecutor executor = executor(1, OverflowPolicy.CALLER_RUNS);
+        closeGate(executor);
+        executor.execute(1, task("a1"));
+        Thread caller = Thread.currentThread();
+        executor.execute(2, () -> executed.add(Thread.currentThread() == caller ? "b1 in caller" : "b1"));
+        assertEquals(Arrays.asList("gate", "b1 in caller"), executed);
+        gate.countDown();
+        awaitExecuted(3);
+        assertEquals(Arrays.asList("gate", "b1 in caller", "a1"), executed);
+        assertEquals(0, executor.getDroppedTasks());
+    }
+
+    @Test
+    public void discardOldestDropsOldestOfAllKeys() throws Exception {
+        KeyedSerialExecutor executor = executor(2, OverflowPolicy.DISCARD_OLDEST);
+        closeGate(executor);
+        executor.execute(1, task("a1"));
+        executor.execute(2, task("b1"));
+        executor.execute(3, task("c1"));
+        executor.execute(2, task("b2"));
+        gate.countDown();
+        awaitExecuted(3);
+        // a1 and b1 are the oldest, though a1 is the only pending task of its key
+        assertEquals(Arrays.asList("gate", "b2", "c1"), executed);
+        assertEquals(2, executor.getDroppedTasks());
+        assertEquals(2, dropped.get());
+    }
+
+    @Test
+    public void dropsTasksRejectedByExecutor() {
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(task -> {
+            throw new RejectedExecutionException("Shut down");
+        }, 1, OverflowPolicy.BLOCK, dropped::incrementAndGet);
+        executor.execute(1, task("a1"));
+        // permit of the rejected task is released
+        executor.execute(1, task("a2"));
+        assertTrue(executed.isEmpty());
+        assertEquals(2, executor.getDroppedTasks());
+        assertEquals(2, dropped.get());
+        assertEquals(0, executor.getActiveKeys());
+    }
+
+    private KeyedSerialExecutor executor(int capacity, OverflowPolicy overflowPolicy) {
+        return new KeyedSerialExecutor(threads, capacity, overflowPolicy, dropped::incrementAndGet);
+    }
+
+    /**
+     * Occupies the only thread until {@link #gate} is opened.
+     */
+    private void closeGate(KeyedSerialExecutor executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(0, () -> {
+            executed.add("gate");
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private Runnable task(String name) {
+        return () -> executed.add(name);
+    }
+
+    private void awaitExecuted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executed.size() < count && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        // let unexpected tasks run as well
+        Thread.sleep(50);
+        assertFalse("Executed " + executed, executed.size() < count);
+    }
+}
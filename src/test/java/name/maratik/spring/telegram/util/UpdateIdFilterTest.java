@@ -0,0 +1,132 @@
+package name.maratik.spring.telegram.util;
+
+import name.maratik.spring.telegram.config.UpdateIdWatermarkStore;
+
+import org.junit.Test;
+
+import java.util.OptionalInt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:maratik@yandex-team.ru">Marat Bukharov</a>
+ */
+public class UpdateIdFilterTest {
+    private static final int WINDOW = 64;
+
+    @Test
+    public void rejectsDuplicates() {
+        UpdateIdFilter filter = new UpdateIdFilter(WINDOW, null);
+        assertTrue(filter.accept(100));
+        assertFalse(filter.accept(100));
+        assertTrue(filter.accept(101));
+        assertTrue("Out of order id in the window is new", filter.accept(99));
+        assertFalse(filter.accept(99));
+        assertFalse(filter.accept(101));
+    }
+
+    @Test
+    public void rejectsIdsOlderThanWindow() {
+        UpdateIdFilter filter = new UpdateIdFilter(WINDOW, null);
+        assertTrue(filter.accept(1000));
+        assertFalse(filter.accept(1000 - WINDOW));
+        assertTrue(filter.accept(1000 - WINDOW + 1));
+    }
+
+    @Test
+    public void forgetsWindowOnJump() {
+        InMemoryStore store = new InMemoryStore();
+        UpdateIdFilter filter = new UpdateIdFilter(WINDOW, store);
+        assertTrue(filter.accept(10));
+        assertTrue(filter.accept(11));
+        assertTrue(filter.accept(10 + 10 * WINDOW));
+        assertFalse(filter.accept(11));
+        assertTrue("Ids skipped by the jump are new", filter.accept(5 + 10 * WINDOW));
+        filter.close();
+        assertEquals("Incomplete ids out of the window and gaps do not hold the watermark",
+            OptionalInt.of(10 * WINDOW + 9), store.watermark
+        );
+    }
+
+    @Test
+    public void reusesRingAcrossWindows() {
+        InMemoryStore store = new InMemoryStore();
+        UpdateIdFilter filter = new UpdateIdFilter(WINDOW, store);
+        for (int id = 1; id <= 5 * WINDOW; id++) {
+            assertTrue(filter.accept(id));
+            assertFalse(filter.accept(id));
+            filter.complete(id);
+        }
+        filter.close();
+        assertEquals(OptionalInt.of(5 * WINDOW), store.watermark);
+    }
+
+    @Test
+    public void handlesIdOverflow() {
+        InMemoryStore store = new InMemoryStore();
+        UpdateIdFilter filter = new UpdateIdFilter(WINDOW, store);
+        for (int id = Integer.MAX_VALUE - 2; id != Integer.MIN_VALUE + 3; id++) {
+            assertTrue(filter.accept(id));
+            filter.complete(id);
+        }
+        assertFalse(filter.accept(Integer.MAX_VALUE));
+        assertFalse(filter.accept(Integer.MIN_VALUE));
+        filter.close();
+        assertEquals(OptionalInt.of(Integer.MIN_VALUE + 2), store.watermark);
+    }
+
+    @Test
+    public void watermarkWaitsForIncompleteAndSkipsGaps() {
+        InMemoryStore store = new InMemoryStore();
+        UpdateIdFilter filter = new UpdateIdFilter(WINDOW, store);
+        assertTrue(filter.accept(1));
+        assertTrue(filter.accept(2));
+        // 3 never comes
+        assertTrue(filter.accept(4));
+        filter.complete(2);
+        filter.complete(4);
+        filter.close();
+        assertEquals(OptionalInt.of(0), store.watermark);
+
+        filter.complete(1);
+        filter.close();
+        assertEquals(OptionalInt.of(4), store.watermark);
+    }
+
+    @Test
+    public void restartsFromStoredWatermark() {
+        InMemoryStore store = new InMemoryStore();
+        UpdateIdFilter filter = new UpdateIdFilter(WINDOW, store);
+        for (int id = 1; id <= 5; id++) {
+            filter.accept(id);
+        }
+        for (int id = 1; id <= 3; id++) {
+            filter.complete(id);
+        }
+        filter.close();
+
+        UpdateIdFilter restarted = new UpdateIdFilter(WINDOW, store);
+        assertFalse(restarted.accept(2));
+        assertFalse(restarted.accept(3));
+        assertTrue("Incomplete before restart", restarted.accept(4));
+        assertTrue(restarted.accept(5));
+        assertFalse(restarted.accept(5));
+        assertTrue(restarted.accept(6));
+    }
+
+    private static class InMemoryStore implements UpdateIdWatermarkStore {
+        private OptionalInt watermark = OptionalInt.empty();
+
+        @Override
+        public OptionalInt load() {
+            return watermark;
+        }
+
+        @Override
+        public void store(int updateId) {
+            watermark = OptionalInt.of(updateId);
+        }
+    }
+}